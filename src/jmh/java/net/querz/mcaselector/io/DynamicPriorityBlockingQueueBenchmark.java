@@ -0,0 +1,143 @@
+package net.querz.mcaselector.io;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+// compares queueing and taking all jobs with the binary heap of DynamicPriorityBlockingQueue to the linear scan it replaced.
+// the priorities are looked up in a map like TileMap.getTilePriority() does. run with ./gradlew jmh.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DynamicPriorityBlockingQueueBenchmark {
+
+	// the number of queued jobs, a world with a large render distance easily queues a few thousand regions
+	@Param({"100", "1000", "4000"})
+	public int jobs;
+
+	private Job[] elements;
+	private ToIntFunction<Job> priority;
+
+	private record Job(long region, long id) {}
+
+	@Setup
+	public void setup() {
+		Random random = new Random(0);
+		Map<Long, Integer> tilePriorities = new HashMap<>();
+		elements = new Job[jobs];
+		for (int i = 0; i < jobs; i++) {
+			long region = (long) random.nextInt(1024) << 32 | random.nextInt(1024);
+			tilePriorities.put(region, random.nextInt(jobs));
+			elements[i] = new Job(region, i);
+		}
+		priority = j -> tilePriorities.getOrDefault(j.region, 9_999_999);
+	}
+
+	@Benchmark
+	public long heap() throws InterruptedException {
+		DynamicPriorityBlockingQueue<Job> queue = new DynamicPriorityBlockingQueue<>(priority);
+		for (Job job : elements) {
+			queue.offer(job);
+		}
+		long sum = 0;
+		for (int i = 0; i < jobs; i++) {
+			sum += queue.take().id;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long linearScan() {
+		LinearScanQueue queue = new LinearScanQueue(priority);
+		for (Job job : elements) {
+			queue.offer(job);
+		}
+		long sum = 0;
+		for (int i = 0; i < jobs; i++) {
+			sum += queue.poll().id;
+		}
+		return sum;
+	}
+
+	// the previous implementation: a linked list that is scanned for the job with the highest priority on every take.
+	// comparing two jobs evaluated the priorities of both.
+	private static class LinearScanQueue {
+
+		private final ToIntFunction<Job> priority;
+		private Node first, last;
+
+		private LinearScanQueue(ToIntFunction<Job> priority) {
+			this.priority = priority;
+		}
+
+		private void offer(Job job) {
+			Node node = new Node(job);
+			if (first == null) {
+				first = node;
+			} else {
+				last.next = node;
+				node.previous = last;
+			}
+			last = node;
+		}
+
+		private Job poll() {
+			if (first == null) {
+				return null;
+			}
+			Node current = first;
+			for (Node node = first.next; node != null; node = node.next) {
+				if (compare(node.job, current.job) < 0) {
+					current = node;
+				}
+			}
+			remove(current);
+			return current.job;
+		}
+
+		private int compare(Job a, Job b) {
+			int pa = priority.applyAsInt(a);
+			int pb = priority.applyAsInt(b);
+			return pa == pb ? Long.compare(a.id, b.id) : Integer.compare(pa, pb);
+		}
+
+		private void remove(Node node) {
+			if (node.previous != null) {
+				node.previous.next = node.next;
+			} else {
+				first = node.next;
+			}
+			if (node.next != null) {
+				node.next.previous = node.previous;
+			} else {
+				last = node.previous;
+			}
+		}
+
+		private static class Node {
+
+			final Job job;
+			Node next, previous;
+
+			Node(Job job) {
+				this.job = job;
+			}
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package net.querz.mcaselector.io.mca;
+
+import net.querz.io.ExposedByteArrayOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// compares encoding and decoding a chunk with new codecs and buffers for every chunk to the thread local ChunkCodecs.
+// run with ./gradlew jmh, the gc profiler reports the allocation rate per operation (gc.alloc.rate.norm).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkCodecsBenchmark {
+
+	// roughly the size of an uncompressed chunk of a generated world
+	private static final int CHUNK_SIZE = 48 * 1024;
+
+	private byte[] chunk;
+	private byte[] zlibChunk;
+	private byte[] gzipChunk;
+	private final byte[] readBuffer = new byte[8192];
+
+	@Setup
+	public void setup() throws IOException {
+		// nbt data of a chunk mostly consists of block state names and packed longs with a lot of repetition
+		String[] names = {"minecraft:stone", "minecraft:dirt", "minecraft:grass_block", "minecraft:deepslate", "minecraft:water", "minecraft:air"};
+		Random random = new Random(0);
+		ExposedByteArrayOutputStream raw = new ExposedByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(raw);
+		while (raw.size() < CHUNK_SIZE) {
+			out.writeUTF(names[random.nextInt(names.length)]);
+			out.writeLong(random.nextInt(16) * 0x1111111111111111L);
+		}
+		chunk = raw.toByteArray();
+
+		ExposedByteArrayOutputStream zlib = new ExposedByteArrayOutputStream();
+		try (OutputStream o = new DeflaterOutputStream(zlib)) {
+			o.write(chunk);
+		}
+		zlibChunk = zlib.toByteArray();
+
+		ExposedByteArrayOutputStream gzip = new ExposedByteArrayOutputStream();
+		try (OutputStream o = new GZIPOutputStream(gzip)) {
+			o.write(chunk);
+		}
+		gzipChunk = gzip.toByteArray();
+	}
+
+	@Benchmark
+	public int encodeZlibNew() throws IOException {
+		ExposedByteArrayOutputStream baos = new ExposedByteArrayOutputStream();
+		Deflater deflater = new Deflater();
+		try (OutputStream out = new BufferedOutputStream(new DeflaterOutputStream(baos, deflater))) {
+			out.write(chunk);
+		} finally {
+			deflater.end();
+		}
+		return baos.size();
+	}
+
+	@Benchmark
+	public int encodeZlibPooled() throws IOException {
+		ExposedByteArrayOutputStream baos = ChunkCodecs.buffer();
+		try (OutputStream out = new BufferedOutputStream(new DeflaterOutputStream(baos, ChunkCodecs.deflater(Deflater.DEFAULT_COMPRESSION)))) {
+			out.write(chunk);
+		}
+		return baos.size();
+	}
+
+	@Benchmark
+	public int encodeGzipNew() throws IOException {
+		ExposedByteArrayOutputStream baos = new ExposedByteArrayOutputStream();
+		try (OutputStream out = new BufferedOutputStream(new GZIPOutputStream(baos))) {
+			out.write(chunk);
+		}
+		return baos.size();
+	}
+
+	@Benchmark
+	public int encodeGzipPooled() throws IOException {
+		ExposedByteArrayOutputStream baos = ChunkCodecs.buffer();
+		try (OutputStream out = new BufferedOutputStream(ChunkCodecs.gzip(baos, Deflater.DEFAULT_COMPRESSION))) {
+			out.write(chunk);
+		}
+		return baos.size();
+	}
+
+	@Benchmark
+	public int decodeZlibNew() throws IOException {
+		Inflater inflater = new Inflater();
+		try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(zlibChunk), inflater)) {
+			return drain(in);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	@Benchmark
+	public int decodeZlibPooled() throws IOException {
+		try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(zlibChunk), ChunkCodecs.inflater())) {
+			return drain(in);
+		}
+	}
+
+	@Benchmark
+	public int decodeGzip() throws IOException {
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipChunk))) {
+			return drain(in);
+		}
+	}
+
+	private int drain(InputStream in) throws IOException {
+		int total = 0;
+		int read;
+		while ((read = in.read(readBuffer)) != -1) {
+			total += read;
+		}
+		return total;
+	}
+}
@@ -5,6 +5,7 @@ import net.querz.mcaselector.cli.ParamExecutor;
 import net.querz.mcaselector.config.Config;
 import net.querz.mcaselector.config.ConfigProvider;
 import net.querz.mcaselector.logging.Logging;
+import net.querz.mcaselector.metrics.Metrics;
 import net.querz.mcaselector.ui.Window;
 import net.querz.mcaselector.text.Translation;
 import net.querz.mcaselector.validation.ShutdownHooks;
@@ -25,6 +26,8 @@ public class Main {
 		LOGGER.debug("java version {}", System.getProperty("java.version"));
 		LOGGER.debug("jvm max memory {}", Runtime.getRuntime().maxMemory());
 
+		Metrics.register();
+
 		ParamExecutor ex = new ParamExecutor(args);
 		Future<Boolean> future = ex.run();
 		if (future != null && future.get()) {
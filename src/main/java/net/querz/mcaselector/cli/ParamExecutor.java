@@ -10,6 +10,8 @@ import net.querz.mcaselector.filter.FilterParser;
 import net.querz.mcaselector.filter.filters.GroupFilter;
 import net.querz.mcaselector.io.*;
 import net.querz.mcaselector.io.job.*;
+import net.querz.mcaselector.io.mca.CompressionType;
+import net.querz.mcaselector.metrics.Metrics;
 import net.querz.mcaselector.overlay.Overlay;
 import net.querz.mcaselector.overlay.OverlayParser;
 import net.querz.mcaselector.point.Point2i;
@@ -26,9 +28,12 @@ import org.apache.logging.log4j.Logger;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
 
 public final class ParamExecutor {
 
@@ -37,6 +42,9 @@ public final class ParamExecutor {
 	private static final Options options = new Options();
 	private static final Options helpOptions = new Options();
 
+	// the modes that support --since-last-run
+	private static final Set<String> SINCE_LAST_RUN_MODES = Set.of("select", "export", "change", "cache");
+
 	static {
 		options.addOption(Option.builder("h")
 			.longOpt("help")
@@ -58,6 +66,8 @@ public final class ParamExecutor {
 				change    Change NBT values in an entire world or only in chunks based on a selection
 				cache     Generate the cache images for an entire world
 				image     Generate a single image based on a selection
+				recompress  Re-encode all chunks or only the chunks in a selection with a different compression
+				compact   Remove unused sectors from region files, e.g. after deleting chunks with --header-only-delete
 				""")
 			.hasArg()
 			.build());
@@ -172,6 +182,16 @@ public final class ParamExecutor {
 			.desc("The fields to change")
 			.hasArg()
 			.build());
+		options.addOption(Option.builder()
+			.longOpt("compression")
+			.desc("The compression to use in recompress mode. One of gzip, zlib, uncompressed or lz4")
+			.hasArg()
+			.build());
+		options.addOption(Option.builder()
+			.longOpt("compression-level")
+			.desc("The deflate level from 0 to 9 to use for gzip and zlib in recompress mode. When not specified, the default level is used")
+			.hasArg()
+			.build());
 		options.addOption(Option.builder()
 			.longOpt("zoom-level")
 			.desc("The zoom level for the cache to be generated. When not specified, all zoom levels will be generated")
@@ -255,6 +275,46 @@ public final class ParamExecutor {
 			.desc("Set the number threads to use for writing files")
 			.hasArg()
 			.build());
+		options.addOption(Option.builder()
+			.longOpt("memory-mapped-io")
+			.desc("Read region files through memory mapping instead of loading them onto the heap")
+			.build());
+		options.addOption(Option.builder()
+			.longOpt("parallel-chunk-compression")
+			.desc("Compress the chunks of a region file in parallel when saving it")
+			.build());
+		options.addOption(Option.builder()
+			.longOpt("header-only-delete")
+			.desc("Only remove deleted chunks from the header of region files without rewriting them. Use compact mode to reclaim the space later")
+			.build());
+		options.addOption(Option.builder()
+			.longOpt("durability")
+			.desc("When to sync rewritten region files to disk: none (default), file (every file) or group (every --durability-group-size files)")
+			.hasArg()
+			.build());
+		options.addOption(Option.builder()
+			.longOpt("durability-group-size")
+			.desc("The number of rewritten region files to sync together when using --durability group")
+			.hasArg()
+			.build());
+		options.addOption(Option.builder()
+			.longOpt("memory-budget")
+			.desc("The fraction of the max heap size that regions loaded for processing can use, default 0.6")
+			.hasArg()
+			.build());
+		options.addOption(Option.builder()
+			.longOpt("memory-inflation")
+			.desc("How many times larger than its files a region is estimated to be when loaded, default 12")
+			.hasArg()
+			.build());
+		options.addOption(Option.builder()
+			.longOpt("since-last-run")
+			.desc("Only process chunks that have been saved since the last run of the same mode with the same query, fields, selection, output and zoom level on this world. Supported by select, export, change and cache")
+			.build());
+		options.addOption(Option.builder()
+			.longOpt("no-query-cache")
+			.desc("Evaluate the query on all regions instead of reusing cached results for regions that did not change since the last run")
+			.build());
 
 		// all the above options should appear in --help
 		for (Option option : options.getOptions()) {
@@ -271,6 +331,12 @@ public final class ParamExecutor {
 
 	private final String[] args;
 	private CommandLine line = null;
+	private long runStart;
+	// identifies the watermark of this run when using --since-last-run
+	private String watermarkKey;
+
+	// the state of the metrics when the mode started, used for the throughput summary
+	private Metrics.Snapshot metricsStart;
 
 	public ParamExecutor(String[] args) {
 		if (Arrays.asList(args).contains("--use-alternative-command-parsing")) {
@@ -294,7 +360,7 @@ public final class ParamExecutor {
 			return null;
 		}
 
-		FutureTask<Boolean> future = new FutureTask<>(() -> {}, true);
+		FutureTask<Boolean> future = new FutureTask<>(this::printSummary, true);
 
 		CommandLineParser parser = new DefaultParser();
 		try {
@@ -328,9 +394,12 @@ public final class ParamExecutor {
 		try {
 			parseConfig();
 
-			JobHandler.setTrimSaveData(false);
+			metricsStart = Metrics.snapshot();
 
 			String mode = line.getOptionValue("mode");
+			if (line.hasOption("since-last-run") && !SINCE_LAST_RUN_MODES.contains(mode)) {
+				throw new ParseException(String.format("--since-last-run is not supported by mode %s", mode));
+			}
 			switch (mode) {
 				case "select" -> select(future);
 				case "export" -> export(future);
@@ -339,6 +408,8 @@ public final class ParamExecutor {
 				case "change" -> change(future);
 				case "cache" -> cache(future);
 				case "image" -> image(future);
+				case "recompress" -> recompress(future);
+				case "compact" -> compact(future);
 
 				// for updating and debugging translations
 				case "printMissingTranslations" -> Translations.printMissingTranslations(future);
@@ -367,9 +438,9 @@ public final class ParamExecutor {
 			"help", "version", "mode", "output", "query", "selection", "source-selection", "radius", "x-offset",
 			"y-offset", "z-offset", "overwrite", "force", "sections", "render-height", "render-caves", "render-layer-only",
 			"render-shade", "render-water-shade", "overlay-type", "overlay-min-value", "overlay-max-value",
-			"overlay-data", "overlay-min-hue", "overlay-max-hue", "fields", "zoom-level", "world", "region", "poi", "entities",
+			"overlay-data", "overlay-min-hue", "overlay-max-hue", "fields", "compression", "compression-level", "zoom-level", "world", "region", "poi", "entities",
 			"source-world", "source-region", "source-poi", "source-entities", "output-world", "output-region",
-			"output-poi", "output-entities", "debug", "process-threads", "write-threads"
+			"output-poi", "output-entities", "debug", "process-threads", "write-threads", "memory-mapped-io", "parallel-chunk-compression", "header-only-delete", "durability", "durability-group-size", "memory-budget", "memory-inflation", "since-last-run", "no-query-cache"
 		};
 		Map<String, Integer> helpOptionOrderLookup = new HashMap<>();
 		for (int i = 0; i < helpOrder.length; i++) {
@@ -395,6 +466,27 @@ public final class ParamExecutor {
 		ConfigProvider.GLOBAL.setDebug(line.hasOption("debug"));
 		ConfigProvider.GLOBAL.setProcessThreads(parseInt("process-threads", GlobalConfig.DEFAULT_PROCESS_THREADS, 1, 128));
 		ConfigProvider.GLOBAL.setProcessThreads(parseInt("write-threads", GlobalConfig.DEFAULT_WRITE_THREADS, 1, 128));
+		ConfigProvider.GLOBAL.setMemoryMappedIO(line.hasOption("memory-mapped-io"));
+		ConfigProvider.GLOBAL.setParallelChunkCompression(line.hasOption("parallel-chunk-compression"));
+		ConfigProvider.GLOBAL.setHeaderOnlyDelete(line.hasOption("header-only-delete"));
+		ConfigProvider.GLOBAL.setDurability(parseDurability());
+		ConfigProvider.GLOBAL.setDurabilityGroupSize(parseInt("durability-group-size", GlobalConfig.DEFAULT_DURABILITY_GROUP_SIZE, 1, 65536));
+		ConfigProvider.GLOBAL.setQueryCache(!line.hasOption("no-query-cache"));
+		ConfigProvider.GLOBAL.setMemoryBudget(parseFloat("memory-budget", false, GlobalConfig.DEFAULT_MEMORY_BUDGET, 0.05f, 0.95f));
+		ConfigProvider.GLOBAL.setMemoryInflation(parseFloat("memory-inflation", false, GlobalConfig.DEFAULT_MEMORY_INFLATION, 1f, 100f));
+	}
+
+	// prints the throughput of the mode once it is done, so thread counts can be tuned for this machine
+	private void printSummary() {
+		if (metricsStart == null) {
+			return;
+		}
+		Metrics.Snapshot summary = Metrics.snapshot().since(metricsStart);
+		if (summary.isEmpty()) {
+			return;
+		}
+		System.out.printf("%s\nthreads: %d process, %d write\n",
+			summary, ConfigProvider.GLOBAL.getProcessThreads(), ConfigProvider.GLOBAL.getWriteThreads());
 	}
 
 	private void printError(String msg, Object... params) {
@@ -662,6 +754,95 @@ public final class ParamExecutor {
 		}
 	}
 
+	private CompressionType parseCompressionType() throws ParseException {
+		if (!line.hasOption("compression")) {
+			throw new ParseException("missing mandatory compression parameter");
+		}
+		String value = line.getOptionValue("compression");
+		return switch (value.toLowerCase()) {
+			case "gzip" -> CompressionType.GZIP;
+			case "zlib" -> CompressionType.ZLIB;
+			case "uncompressed" -> CompressionType.UNCOMPRESSED;
+			case "lz4" -> CompressionType.LZ4;
+			default -> throw new ParseException(String.format("invalid compression %s", value));
+		};
+	}
+
+	// restricts the selection to the chunks that have been saved since the last run of this mode when using --since-last-run.
+	// runs with a different query, fields, selection or output don't share their watermark.
+	private Selection sinceLastRun(String mode, Selection selection, GroupFilter query, List<Field<?>> fields, File output) {
+		if (!line.hasOption("since-last-run")) {
+			return selection;
+		}
+		watermarkKey = createWatermarkKey(mode, query, fields, output);
+		// chunks saved while this run is in progress need to be processed by the next run
+		runStart = Watermark.now();
+		long since = Watermark.get(watermarkKey);
+		if (since < 0) {
+			LOGGER.info("{} did not run on this world before, processing all chunks", mode);
+			return selection;
+		}
+		return Watermark.getChangedChunks(ConfigProvider.WORLD.getWorldDirs(), selection, since);
+	}
+
+	private String createWatermarkKey(String mode, GroupFilter query, List<Field<?>> fields, File output) {
+		StringBuilder key = new StringBuilder(mode);
+		if (query != null) {
+			key.append(";query=").append(query);
+		}
+		if (fields != null) {
+			StringJoiner joiner = new StringJoiner(", ");
+			for (Field<?> field : fields) {
+				joiner.add(field.toString());
+			}
+			key.append(";fields=").append(joiner);
+		}
+		if (line.hasOption("selection")) {
+			key.append(";selection=").append(normalizePath(new File(line.getOptionValue("selection"))));
+		}
+		if (output != null) {
+			key.append(";output=").append(normalizePath(output));
+		}
+		if (line.hasOption("zoom-level")) {
+			key.append(";zoom-level=").append(line.getOptionValue("zoom-level"));
+		}
+		return key.toString();
+	}
+
+	private static String normalizePath(File file) {
+		return file.getAbsoluteFile().toPath().normalize().toString();
+	}
+
+	// runs the done action when all jobs of a batch are done. when using --since-last-run, the watermark is only
+	// moved forward if all jobs completed, so regions that failed are processed again the next time.
+	private Consumer<BatchResult> batchDone(String mode, Runnable doneAction) {
+		long start = runStart;
+		String key = watermarkKey;
+		return result -> {
+			if (!result.isSuccessful()) {
+				LOGGER.warn("{}: {}", mode, result);
+			}
+			// the key is only set by modes that called sinceLastRun()
+			if (key != null && result.isSuccessful()) {
+				Watermark.set(key, start);
+			}
+			doneAction.run();
+		};
+	}
+
+	private StagingHelper.Durability parseDurability() throws ParseException {
+		if (!line.hasOption("durability")) {
+			return GlobalConfig.DEFAULT_DURABILITY;
+		}
+		String value = line.getOptionValue("durability");
+		return switch (value.toLowerCase()) {
+			case "none" -> StagingHelper.Durability.NONE;
+			case "file" -> StagingHelper.Durability.FILE;
+			case "group" -> StagingHelper.Durability.GROUP;
+			default -> throw new ParseException(String.format("invalid durability %s", value));
+		};
+	}
+
 	private Integer parseZoomLevel() throws ParseException {
 		String value = line.getOptionValue("zoom-level");
 		if (value == null) {
@@ -697,16 +878,16 @@ public final class ParamExecutor {
 		ConfigProvider.WORLD.setWorldDirs(parseWorldDirectories(""));
 		File output = parseFileAndCreateParentDirectories("output", "csv");
 		GroupFilter query = parseQuery(true);
-		Selection selectionData = loadSelection(false, false);
+		Selection selectionData = sinceLastRun("select", loadSelection(false, false), query, null, output);
 		int radius = parseInt("radius", 0, 0, 128);
 
 		Selection selection = new Selection();
 		CLIProgress progress = new CLIProgress("selecting chunks");
-		progress.onDone(() -> {
-			handleException(() -> saveSelection(selection, output));
-			future.run();
-		});
-		ChunkFilterSelector.selectFilter(query, selectionData, radius, selection::merge, progress, true);
+		ChunkFilterSelector.selectFilter(query, selectionData, radius, selection::merge, progress, true)
+			.thenAccept(batchDone("select", () -> {
+				handleException(() -> saveSelection(selection, output));
+				future.run();
+			}));
 	}
 
 	private void export(FutureTask<Boolean> future) throws ParseException {
@@ -715,16 +896,19 @@ public final class ParamExecutor {
 		WorldDirectories output = parseAndCreateWorldDirectories("output");
 		GroupFilter query = parseQuery(false);
 		Selection selection = loadSelection(false, false);
+		if (query == null && selection == null) {
+			throw new ParseException("missing --query and/or --selection parameter");
+		}
+		selection = sinceLastRun("export", selection, query, null, output.getRegion());
 
 		CLIProgress progress = new CLIProgress("exporting chunks");
-		progress.onDone(future);
+		CompletableFuture<BatchResult> batch;
 		if (query != null) {
-			ChunkFilterExporter.exportFilter(query, selection, output, progress, true);
-		} else if (selection != null) {
-			SelectionExporter.exportSelection(selection, output, progress);
+			batch = ChunkFilterExporter.exportFilter(query, selection, output, progress, true);
 		} else {
-			throw new ParseException("missing --query and/or --selection parameter");
+			batch = SelectionExporter.exportSelection(selection, output, progress);
 		}
+		batch.thenAccept(batchDone("export", future));
 	}
 
 	private void imp(FutureTask<Boolean> future) throws ParseException {
@@ -767,15 +951,16 @@ public final class ParamExecutor {
 		Selection selection = loadSelection(false, false);
 
 		CLIProgress progress = new CLIProgress("deleting chunks");
-		progress.onDone(future);
 
+		CompletableFuture<BatchResult> batch;
 		if (query != null) {
-			ChunkFilterDeleter.deleteFilter(query, selection, progress, true);
+			batch = ChunkFilterDeleter.deleteFilter(query, selection, progress, true);
 		} else if (selection != null) {
-			SelectionDeleter.deleteSelection(selection, progress);
+			batch = SelectionDeleter.deleteSelection(selection, progress);
 		} else {
 			throw new ParseException("missing --query and/or --selection parameter");
 		}
+		batch.thenAccept(batchDone("delete", future));
 	}
 
 	private void change(FutureTask<Boolean> future) throws ParseException {
@@ -784,11 +969,33 @@ public final class ParamExecutor {
 		Selection selection = loadSelection(false, false);
 		boolean force = line.hasOption("force");
 		List<Field<?>> fields = parseFields(true);
+		selection = sinceLastRun("change", selection, null, fields, null);
 
 		CLIProgress progress = new CLIProgress("changing fields");
-		progress.onDone(future);
 
-		FieldChanger.changeNBTFields(fields, force, selection, progress, true);
+		FieldChanger.changeNBTFields(fields, force, selection, progress, true).thenAccept(batchDone("change", future));
+	}
+
+	private void recompress(FutureTask<Boolean> future) throws ParseException {
+		ConfigProvider.WORLD = new WorldConfig();
+		ConfigProvider.WORLD.setWorldDirs(parseWorldDirectories(""));
+		Selection selection = loadSelection(false, false);
+		CompressionType compressionType = parseCompressionType();
+		int compressionLevel = line.hasOption("compression-level") ? parseInt("compression-level", Deflater.DEFAULT_COMPRESSION, 0, 9) : Deflater.DEFAULT_COMPRESSION;
+
+		CLIProgress progress = new CLIProgress("recompressing chunks");
+
+		ChunkRecompressor.recompress(compressionType, compressionLevel, selection, progress, true).thenAccept(batchDone("recompress", future));
+	}
+
+	private void compact(FutureTask<Boolean> future) throws ParseException {
+		ConfigProvider.WORLD = new WorldConfig();
+		ConfigProvider.WORLD.setWorldDirs(parseWorldDirectories(""));
+		Selection selection = loadSelection(false, false);
+
+		CLIProgress progress = new CLIProgress("compacting regions");
+
+		RegionCompactor.compact(selection, progress, true).thenAccept(batchDone("compact", future));
 	}
 
 	private void cache(FutureTask<Boolean> future) throws ParseException, ExecutionException, InterruptedException {
@@ -801,13 +1008,13 @@ public final class ParamExecutor {
 		File output = parseDirAndCreate("output");
 		ConfigProvider.WORLD.setCacheDir(output);
 		Integer zoomLevel = parseZoomLevel();
+		Selection selection = sinceLastRun("cache", null, null, null, output);
 
 		CLIJFX.launch();
 
 		CLIProgress progress = new CLIProgress("generating cache");
-		progress.onDone(future);
 
-		CacheHelper.forceGenerateCache(zoomLevel, progress);
+		CacheHelper.forceGenerateCache(zoomLevel, selection, progress).thenAccept(batchDone("cache", future));
 	}
 
 	private void image(FutureTask<Boolean> future) throws ParseException, ExecutionException, InterruptedException {
@@ -6,6 +6,7 @@ import net.querz.mcaselector.config.adapter.ColorAdapter;
 import net.querz.mcaselector.config.adapter.FileAdapter;
 import net.querz.mcaselector.config.adapter.LocaleAdapter;
 import net.querz.mcaselector.io.FileHelper;
+import net.querz.mcaselector.io.StagingHelper;
 import net.querz.mcaselector.logging.GsonNamingStrategy;
 import net.querz.mcaselector.logging.Logging;
 import net.querz.mcaselector.text.Translation;
@@ -36,6 +37,14 @@ public class GlobalConfig extends Config {
 	public static final int DEFAULT_WRITE_THREADS = Math.min(Math.max(Runtime.getRuntime().availableProcessors(), 1), 4);
 	public static final int DEFAULT_MAX_LOADED_FILES = (int) Math.min(Math.max(Math.ceil(Runtime.getRuntime().maxMemory() / 1_000_000_000D) * 2, 1), 16);
 	public static final boolean DEFAULT_DEBUG = false;
+	public static final boolean DEFAULT_MEMORY_MAPPED_IO = false;
+	public static final boolean DEFAULT_PARALLEL_CHUNK_COMPRESSION = false;
+	public static final boolean DEFAULT_HEADER_ONLY_DELETE = false;
+	public static final StagingHelper.Durability DEFAULT_DURABILITY = StagingHelper.Durability.NONE;
+	public static final int DEFAULT_DURABILITY_GROUP_SIZE = 64;
+	public static final boolean DEFAULT_QUERY_CACHE = true;
+	public static final float DEFAULT_MEMORY_BUDGET = 0.6f;
+	public static final float DEFAULT_MEMORY_INFLATION = 12f;
 	public static final String DEFAULT_MC_SAVES_DIR = FileHelper.getMCSavesDir();
 
 	// attributes
@@ -48,6 +57,14 @@ public class GlobalConfig extends Config {
 	private int maxLoadedFiles = DEFAULT_MAX_LOADED_FILES;
 	private String mcSavesDir = DEFAULT_MC_SAVES_DIR;
 	private boolean debug = DEFAULT_DEBUG;
+	private boolean memoryMappedIO = DEFAULT_MEMORY_MAPPED_IO;
+	private boolean parallelChunkCompression = DEFAULT_PARALLEL_CHUNK_COMPRESSION;
+	private boolean headerOnlyDelete = DEFAULT_HEADER_ONLY_DELETE;
+	private StagingHelper.Durability durability = DEFAULT_DURABILITY;
+	private int durabilityGroupSize = DEFAULT_DURABILITY_GROUP_SIZE;
+	private boolean queryCache = DEFAULT_QUERY_CACHE;
+	private float memoryBudget = DEFAULT_MEMORY_BUDGET;
+	private float memoryInflation = DEFAULT_MEMORY_INFLATION;
 	private TreeMap<Long, RecentWorld> recentWorlds = new TreeMap<>();
 
 	public Locale getLocale() {
@@ -125,6 +142,72 @@ public class GlobalConfig extends Config {
 		Logging.updateThreadContext();
 	}
 
+	public boolean getMemoryMappedIO() {
+		return memoryMappedIO;
+	}
+
+	public void setMemoryMappedIO(boolean memoryMappedIO) {
+		this.memoryMappedIO = memoryMappedIO;
+	}
+
+	public boolean getParallelChunkCompression() {
+		return parallelChunkCompression;
+	}
+
+	public void setParallelChunkCompression(boolean parallelChunkCompression) {
+		this.parallelChunkCompression = parallelChunkCompression;
+	}
+
+	public boolean getHeaderOnlyDelete() {
+		return headerOnlyDelete;
+	}
+
+	public void setHeaderOnlyDelete(boolean headerOnlyDelete) {
+		this.headerOnlyDelete = headerOnlyDelete;
+	}
+
+	public StagingHelper.Durability getDurability() {
+		return durability;
+	}
+
+	public void setDurability(StagingHelper.Durability durability) {
+		this.durability = durability;
+	}
+
+	public int getDurabilityGroupSize() {
+		return durabilityGroupSize;
+	}
+
+	public void setDurabilityGroupSize(int durabilityGroupSize) {
+		this.durabilityGroupSize = durabilityGroupSize;
+	}
+
+	public boolean getQueryCache() {
+		return queryCache;
+	}
+
+	public void setQueryCache(boolean queryCache) {
+		this.queryCache = queryCache;
+	}
+
+	// the fraction of the max heap size that regions loaded for processing can use
+	public float getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public void setMemoryBudget(float memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	// how much larger the parsed data of a region is estimated to be than its files
+	public float getMemoryInflation() {
+		return memoryInflation;
+	}
+
+	public void setMemoryInflation(float memoryInflation) {
+		this.memoryInflation = memoryInflation;
+	}
+
 	public TreeMap<Long, RecentWorld> getRecentWorlds() {
 		return recentWorlds;
 	}
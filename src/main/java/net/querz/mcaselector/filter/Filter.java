@@ -2,6 +2,7 @@ package net.querz.mcaselector.filter;
 
 import net.querz.mcaselector.io.mca.ChunkData;
 import java.io.Serializable;
+import java.util.Set;
 
 public abstract class Filter<T> implements Serializable {
 
@@ -62,6 +63,18 @@ public abstract class Filter<T> implements Serializable {
 		return false;
 	}
 
+	// returns false if the result of this filter depends on more than the region's own mca files,
+	// e.g. on external files or other regions, so it can't be cached per region.
+	public boolean isCacheable() {
+		return true;
+	}
+
+	// returns the paths of all region chunk tags read by this filter, e.g. "Level.InhabitedTime".
+	// null means that this filter needs the full chunk data, including poi and entities.
+	public Set<String> getRequiredTags() {
+		return null;
+	}
+
 	public abstract T getFilterValue();
 
 	public abstract void setFilterValue(String raw);
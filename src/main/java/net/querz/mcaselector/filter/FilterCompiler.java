@@ -0,0 +1,246 @@
+package net.querz.mcaselector.filter;
+
+import net.querz.mcaselector.filter.filters.GroupFilter;
+import net.querz.mcaselector.io.mca.ChunkData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+// compiles a filter tree into a predicate that is evaluated for every chunk of a job.
+// a group is an OR of AND blocks, so the conditions inside of an AND block and the AND blocks themselves can be
+// evaluated in any order without changing the result. the conditions are sorted by how much of the chunk data they
+// need to look at, so the cheap conditions reject a chunk before the expensive ones are evaluated.
+// nested groups are flattened into their parent if they use the same operator and empty groups are folded away.
+public final class FilterCompiler {
+
+	// the estimated cost of evaluating a filter
+	private static final int COST_LOCATION = 0;
+	private static final int COST_HEADER = 1;
+	private static final int COST_ROOT_TAG = 2;
+	private static final int COST_PALETTE = 3;
+	private static final int COST_ENTITIES = 4;
+	private static final int COST_SCRIPT = 5;
+
+	private FilterCompiler() {}
+
+	public static Predicate<ChunkData> compile(Filter<?> filter) {
+		return simplify(parse(filter)).toPredicate();
+	}
+
+	private static int getCost(FilterType type) {
+		return switch (type) {
+			case X_POS, Z_POS, CIRCLE, SELECTION, PLAYER_DATA, PLAYER_SPAWN -> COST_LOCATION;
+			case TIMESTAMP, CHUNK_SIZE -> COST_HEADER;
+			case DATA_VERSION, INHABITED_TIME, Y_POS, LAST_UPDATE, LIGHT_POPULATED, STATUS, TILE_ENTITY_AMOUNT, PROTO_ENTITY_AMOUNT -> COST_ROOT_TAG;
+			// the border filter reads the headers of the neighbouring regions
+			case PALETTE, BIOME, STRUCTURES, BORDER -> COST_PALETTE;
+			case ENTITIES, ENTITY_AMOUNT -> COST_ENTITIES;
+			case CUSTOM, SCRIPT -> COST_SCRIPT;
+			case GROUP, NOT_GROUP -> throw new IllegalArgumentException("groups don't have a cost");
+		};
+	}
+
+	private static Node parse(Filter<?> filter) {
+		if (!(filter instanceof GroupFilter group)) {
+			return new Leaf(filter, getCost(filter.getType()));
+		}
+		// AND binds stronger than OR, so every OR starts a new AND block
+		List<Node> blocks = new ArrayList<>();
+		List<Node> block = new ArrayList<>();
+		List<Filter<?>> children = group.getFilterValue();
+		for (int i = 0; i < children.size(); i++) {
+			Filter<?> child = children.get(i);
+			if (i != 0 && child.getOperator() == Operator.OR) {
+				blocks.add(new And(block));
+				block = new ArrayList<>();
+			}
+			block.add(parse(child));
+		}
+		if (!block.isEmpty()) {
+			blocks.add(new And(block));
+		}
+		// an empty group matches everything
+		Node result = blocks.isEmpty() ? Constant.TRUE : new Or(blocks);
+		return group.isNegated() ? new Not(result) : result;
+	}
+
+	private static Node simplify(Node node) {
+		if (node instanceof Not not) {
+			Node child = simplify(not.child);
+			if (child instanceof Constant constant) {
+				return constant.negate();
+			}
+			if (child instanceof Not inner) {
+				return inner.child;
+			}
+			return new Not(child);
+		}
+		if (node instanceof And and) {
+			List<Node> children = new ArrayList<>(and.children.size());
+			for (Node c : and.children) {
+				Node child = simplify(c);
+				if (child == Constant.FALSE) {
+					return Constant.FALSE;
+				}
+				if (child == Constant.TRUE) {
+					continue;
+				}
+				if (child instanceof And inner) {
+					children.addAll(inner.children);
+				} else {
+					children.add(child);
+				}
+			}
+			if (children.isEmpty()) {
+				return Constant.TRUE;
+			}
+			if (children.size() == 1) {
+				return children.get(0);
+			}
+			children.sort((a, b) -> Integer.compare(a.cost(), b.cost()));
+			return new And(children);
+		}
+		if (node instanceof Or or) {
+			List<Node> children = new ArrayList<>(or.children.size());
+			for (Node c : or.children) {
+				Node child = simplify(c);
+				if (child == Constant.TRUE) {
+					return Constant.TRUE;
+				}
+				if (child == Constant.FALSE) {
+					continue;
+				}
+				if (child instanceof Or inner) {
+					children.addAll(inner.children);
+				} else {
+					children.add(child);
+				}
+			}
+			if (children.isEmpty()) {
+				return Constant.FALSE;
+			}
+			if (children.size() == 1) {
+				return children.get(0);
+			}
+			children.sort((a, b) -> Integer.compare(a.cost(), b.cost()));
+			return new Or(children);
+		}
+		return node;
+	}
+
+	private interface Node {
+
+		int cost();
+
+		Predicate<ChunkData> toPredicate();
+	}
+
+	private enum Constant implements Node {
+
+		TRUE, FALSE;
+
+		Constant negate() {
+			return this == TRUE ? FALSE : TRUE;
+		}
+
+		@Override
+		public int cost() {
+			return COST_LOCATION;
+		}
+
+		@Override
+		public Predicate<ChunkData> toPredicate() {
+			return this == TRUE ? d -> true : d -> false;
+		}
+	}
+
+	private record Leaf(Filter<?> filter, int cost) implements Node {
+
+		@Override
+		public Predicate<ChunkData> toPredicate() {
+			return filter::matches;
+		}
+	}
+
+	private record Not(Node child) implements Node {
+
+		@Override
+		public int cost() {
+			return child.cost();
+		}
+
+		@Override
+		public Predicate<ChunkData> toPredicate() {
+			Predicate<ChunkData> p = child.toPredicate();
+			return d -> !p.test(d);
+		}
+	}
+
+	// a block is as expensive as its most expensive condition, because all of them might need to be evaluated
+	private record And(List<Node> children) implements Node {
+
+		@Override
+		public int cost() {
+			return maxCost(children);
+		}
+
+		@Override
+		public Predicate<ChunkData> toPredicate() {
+			Predicate<ChunkData>[] predicates = toPredicates(children);
+			if (predicates.length == 2) {
+				Predicate<ChunkData> a = predicates[0], b = predicates[1];
+				return d -> a.test(d) && b.test(d);
+			}
+			return d -> {
+				for (Predicate<ChunkData> p : predicates) {
+					if (!p.test(d)) {
+						return false;
+					}
+				}
+				return true;
+			};
+		}
+	}
+
+	private record Or(List<Node> children) implements Node {
+
+		@Override
+		public int cost() {
+			return maxCost(children);
+		}
+
+		@Override
+		public Predicate<ChunkData> toPredicate() {
+			Predicate<ChunkData>[] predicates = toPredicates(children);
+			if (predicates.length == 2) {
+				Predicate<ChunkData> a = predicates[0], b = predicates[1];
+				return d -> a.test(d) || b.test(d);
+			}
+			return d -> {
+				for (Predicate<ChunkData> p : predicates) {
+					if (p.test(d)) {
+						return true;
+					}
+				}
+				return false;
+			};
+		}
+	}
+
+	private static int maxCost(List<Node> nodes) {
+		int cost = COST_LOCATION;
+		for (Node node : nodes) {
+			cost = Math.max(cost, node.cost());
+		}
+		return cost;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Predicate<ChunkData>[] toPredicates(List<Node> nodes) {
+		Predicate<ChunkData>[] predicates = new Predicate[nodes.size()];
+		for (int i = 0; i < predicates.length; i++) {
+			predicates[i] = nodes.get(i).toPredicate();
+		}
+		return predicates;
+	}
+}
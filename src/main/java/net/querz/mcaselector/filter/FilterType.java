@@ -29,6 +29,7 @@ public enum FilterType {
 	ENTITY_AMOUNT("#Entities", EntityAmountFilter::new, Format.NUMBER),
 	PROTO_ENTITY_AMOUNT("#ProtoEntities", ProtoEntityAmountFilter::new, Format.NUMBER),
 	TILE_ENTITY_AMOUNT("#TileEntities", TileEntityAmountFilter::new, Format.NUMBER),
+	CHUNK_SIZE("ChunkSize", ChunkSizeFilter::new, Format.NUMBER),
 	CIRCLE("Circle", CircleFilter::new, Format.TEXT),
 	BORDER("Border", BorderFilter::new, Format.NUMBER),
 	CUSTOM("Custom", CustomFilter::new, Format.TEXT),
@@ -0,0 +1,9 @@
+package net.querz.mcaselector.filter;
+
+import net.querz.mcaselector.io.mca.ChunkHeaderData;
+
+public interface HeaderMatcher {
+
+	// returns whether the chunk matches based on its headers alone or null if the chunk data is needed to decide
+	Boolean matchesHeader(ChunkHeaderData data);
+}
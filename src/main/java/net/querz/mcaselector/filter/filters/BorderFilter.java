@@ -249,4 +249,9 @@ public class BorderFilter extends IntFilter {
 	public boolean selectionOnly() {
 		return true;
 	}
+
+	@Override
+	public boolean isCacheable() {
+		return false;
+	}
 }
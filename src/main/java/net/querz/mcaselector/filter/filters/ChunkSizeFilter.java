@@ -0,0 +1,64 @@
+package net.querz.mcaselector.filter.filters;
+
+import net.querz.mcaselector.filter.Comparator;
+import net.querz.mcaselector.filter.FilterType;
+import net.querz.mcaselector.filter.HeaderMatcher;
+import net.querz.mcaselector.filter.IntFilter;
+import net.querz.mcaselector.filter.Operator;
+import net.querz.mcaselector.io.mca.ChunkData;
+import net.querz.mcaselector.io.mca.ChunkHeaderData;
+
+// the size in KiB a chunk occupies on disk in its region, poi and entities files, including external mcc files
+public class ChunkSizeFilter extends IntFilter implements HeaderMatcher {
+
+	public ChunkSizeFilter() {
+		this(Operator.AND, Comparator.EQUAL, 0);
+	}
+
+	private ChunkSizeFilter(Operator operator, Comparator comparator, int value) {
+		super(FilterType.CHUNK_SIZE, operator, comparator, value);
+	}
+
+	// returns null for a chunk that doesn't exist in any of the files, because it has no size, not a size of 0
+	@Override
+	protected Integer getNumber(ChunkData data) {
+		if (data.region() == null && data.poi() == null && data.entities() == null) {
+			return null;
+		}
+		return (int) (data.diskSize() / 1024);
+	}
+
+	@Override
+	public boolean matches(ChunkData data) {
+		Integer size = getNumber(data);
+		return size != null && matches(getFilterNumber(), size, getComparator());
+	}
+
+	@Override
+	public Boolean matchesHeader(ChunkHeaderData data) {
+		// same as matches() for chunks that don't exist
+		if (data.isEmpty()) {
+			return false;
+		}
+		return matches(getFilterNumber(), (int) (data.size() / 1024), getComparator());
+	}
+
+	@Override
+	public void setFilterValue(String raw) {
+		super.setFilterValue(raw);
+		if (isValid() && getFilterValue() < 0) {
+			setFilterNumber(0);
+			setValid(false);
+		}
+	}
+
+	@Override
+	public String getFormatText() {
+		return "KiB";
+	}
+
+	@Override
+	public ChunkSizeFilter clone() {
+		return new ChunkSizeFilter(getOperator(), getComparator(), value);
+	}
+}
@@ -6,6 +6,7 @@ import net.querz.mcaselector.filter.IntFilter;
 import net.querz.mcaselector.filter.Operator;
 import net.querz.mcaselector.io.mca.ChunkData;
 import net.querz.nbt.IntTag;
+import java.util.Set;
 
 public class DataVersionFilter extends IntFilter {
 
@@ -35,6 +36,11 @@ public class DataVersionFilter extends IntFilter {
 		}
 	}
 
+	@Override
+	public Set<String> getRequiredTags() {
+		return Set.of("DataVersion");
+	}
+
 	@Override
 	public DataVersionFilter clone() {
 		return new DataVersionFilter(getOperator(), getComparator(), value);
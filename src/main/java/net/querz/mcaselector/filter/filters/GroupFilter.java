@@ -2,11 +2,14 @@ package net.querz.mcaselector.filter.filters;
 
 import net.querz.mcaselector.filter.*;
 import net.querz.mcaselector.io.mca.ChunkData;
+import net.querz.mcaselector.io.mca.ChunkHeaderData;
 import net.querz.mcaselector.point.Point2i;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-public class GroupFilter extends Filter<List<Filter<?>>> {
+public class GroupFilter extends Filter<List<Filter<?>>> implements HeaderMatcher {
 
 	private List<Filter<?>> children = new ArrayList<>();
 	private boolean negated = false;
@@ -105,6 +108,55 @@ public class GroupFilter extends Filter<List<Filter<?>>> {
 		return negated != currentResult;
 	}
 
+	// same as matches(), but with a third state (null) for conditions that can't be decided from the header
+	@Override
+	public Boolean matchesHeader(ChunkHeaderData data) {
+		Boolean result = Boolean.FALSE;
+		Boolean currentResult = Boolean.TRUE;
+		for (int i = 0; i < children.size(); i++) {
+			Filter<?> child = children.get(i);
+			if (i != 0 && child.getOperator() == Operator.OR) {
+				// the previous AND block is done
+				if (currentResult == Boolean.TRUE) {
+					return !negated;
+				}
+				result = or(result, currentResult);
+				currentResult = Boolean.TRUE;
+			}
+			// skip all conditions in this AND block if it is already false
+			if (currentResult != Boolean.FALSE) {
+				Boolean childResult = child instanceof HeaderMatcher headerMatcher ? headerMatcher.matchesHeader(data) : null;
+				if (childResult == Boolean.FALSE) {
+					currentResult = Boolean.FALSE;
+				} else if (childResult == null) {
+					currentResult = null;
+				}
+			}
+		}
+		result = or(result, currentResult);
+		return result == null ? null : negated != result;
+	}
+
+	private static Boolean or(Boolean a, Boolean b) {
+		if (a == Boolean.TRUE || b == Boolean.TRUE) {
+			return Boolean.TRUE;
+		}
+		if (a == null || b == null) {
+			return null;
+		}
+		return Boolean.FALSE;
+	}
+
+	// returns true if any condition of this filter can be decided from the header
+	public boolean hasHeaderMatcher() {
+		for (Filter<?> child : children) {
+			if (child instanceof GroupFilter group ? group.hasHeaderMatcher() : child instanceof HeaderMatcher) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public boolean appliesToRegion(Point2i region) {
 		GroupFilter gf = resolveNegations();
 
@@ -230,6 +282,19 @@ public class GroupFilter extends Filter<List<Filter<?>>> {
 		}
 	}
 
+	@Override
+	public Set<String> getRequiredTags() {
+		Set<String> tags = new HashSet<>();
+		for (Filter<?> child : children) {
+			Set<String> childTags = child.getRequiredTags();
+			if (childTags == null) {
+				return null;
+			}
+			tags.addAll(childTags);
+		}
+		return tags;
+	}
+
 	@Override
 	public boolean selectionOnly() {
 		for (Filter<?> child : children) {
@@ -239,4 +304,14 @@ public class GroupFilter extends Filter<List<Filter<?>>> {
 		}
 		return false;
 	}
+
+	@Override
+	public boolean isCacheable() {
+		for (Filter<?> child : children) {
+			if (!child.isCacheable()) {
+				return false;
+			}
+		}
+		return true;
+	}
 }
@@ -9,6 +9,7 @@ import net.querz.mcaselector.text.TextHelper;
 import net.querz.mcaselector.version.ChunkFilter;
 import net.querz.mcaselector.version.VersionController;
 import net.querz.nbt.LongTag;
+import java.util.Set;
 
 public class InhabitedTimeFilter extends LongFilter {
 
@@ -56,6 +57,11 @@ public class InhabitedTimeFilter extends LongFilter {
 		return "duration";
 	}
 
+	@Override
+	public Set<String> getRequiredTags() {
+		return Set.of("InhabitedTime", "Level.InhabitedTime");
+	}
+
 	@Override
 	public InhabitedTimeFilter clone() {
 		return new InhabitedTimeFilter(getOperator(), getComparator(), value);
@@ -9,6 +9,7 @@ import net.querz.mcaselector.text.TextHelper;
 import net.querz.mcaselector.version.ChunkFilter;
 import net.querz.mcaselector.version.VersionController;
 import net.querz.nbt.LongTag;
+import java.util.Set;
 
 public class LastUpdateFilter extends LongFilter {
 
@@ -56,6 +57,11 @@ public class LastUpdateFilter extends LongFilter {
 		return "duration";
 	}
 
+	@Override
+	public Set<String> getRequiredTags() {
+		return Set.of("LastUpdate", "Level.LastUpdate");
+	}
+
 	@Override
 	public LastUpdateFilter clone() {
 		return new LastUpdateFilter(getOperator(), getComparator(), value);
@@ -216,4 +216,9 @@ public class PlayerLocationFilter extends TextFilter<PlayerLocationFilter.Player
 			loaded.set(false);
 		}
 	}
+
+	@Override
+	public boolean isCacheable() {
+		return false;
+	}
 }
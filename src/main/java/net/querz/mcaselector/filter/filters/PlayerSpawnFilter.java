@@ -78,4 +78,9 @@ public class PlayerSpawnFilter extends PlayerLocationFilter {
 	public String toString() {
 		return "PlayerSpawn " + getComparator().getQueryString() + " \"" + getRawValue().replace("\\", "\\\\") + "\"";
 	}
+
+	@Override
+	public boolean isCacheable() {
+		return false;
+	}
 }
@@ -93,4 +93,9 @@ public class ScriptFilter extends TextFilter<String> {
 	public boolean intersects(String value, ChunkData data) {
 		throw new UnsupportedOperationException("\"intersects\" not allowed in ScriptFilter");
 	}
+
+	@Override
+	public boolean isCacheable() {
+		return false;
+	}
 }
@@ -144,4 +144,9 @@ public class SelectionFilter extends TextFilter<File> implements RegionMatcher {
 			loaded.set(false);
 		}
 	}
+
+	@Override
+	public boolean isCacheable() {
+		return false;
+	}
 }
@@ -9,6 +9,7 @@ import net.querz.mcaselector.io.registry.StatusRegistry;
 import net.querz.mcaselector.version.ChunkFilter;
 import net.querz.mcaselector.version.VersionController;
 import net.querz.nbt.StringTag;
+import java.util.Set;
 
 public class StatusFilter extends TextFilter<StatusRegistry.StatusIdentifier> {
 
@@ -86,6 +87,11 @@ public class StatusFilter extends TextFilter<StatusRegistry.StatusIdentifier> {
 		return "Status " + getComparator().getQueryString() + " " + getFilterValue().getStatusWithNamespace();
 	}
 
+	@Override
+	public Set<String> getRequiredTags() {
+		return Set.of("Status", "Level.Status");
+	}
+
 	@Override
 	public StatusFilter clone() {
 		return new StatusFilter(getOperator(), getComparator(), getRawValue(), value);
@@ -2,12 +2,15 @@ package net.querz.mcaselector.filter.filters;
 
 import net.querz.mcaselector.filter.Comparator;
 import net.querz.mcaselector.filter.FilterType;
+import net.querz.mcaselector.filter.HeaderMatcher;
 import net.querz.mcaselector.filter.IntFilter;
 import net.querz.mcaselector.filter.Operator;
 import net.querz.mcaselector.io.mca.ChunkData;
+import net.querz.mcaselector.io.mca.ChunkHeaderData;
 import net.querz.mcaselector.text.TextHelper;
+import java.util.Set;
 
-public class TimestampFilter extends IntFilter {
+public class TimestampFilter extends IntFilter implements HeaderMatcher {
 
 	public TimestampFilter() {
 		this(Operator.AND, Comparator.EQUAL, 0);
@@ -22,6 +25,14 @@ public class TimestampFilter extends IntFilter {
 		return data.region().getTimestamp();
 	}
 
+	@Override
+	public Boolean matchesHeader(ChunkHeaderData data) {
+		if (data.region() == null) {
+			return null;
+		}
+		return matches(getFilterNumber(), data.region().timestamp(), getComparator());
+	}
+
 	@Override
 	public void setFilterValue(String raw) {
 		super.setFilterValue(raw);
@@ -47,6 +58,11 @@ public class TimestampFilter extends IntFilter {
 		return "LastUpdate " + getComparator().getQueryString() + " \"" + getRawValue() + "\"";
 	}
 
+	@Override
+	public Set<String> getRequiredTags() {
+		return Set.of();
+	}
+
 	@Override
 	public TimestampFilter clone() {
 		return new TimestampFilter(getOperator(), getComparator(), value);
@@ -6,6 +6,7 @@ import net.querz.mcaselector.point.Point2i;
 import net.querz.mcaselector.version.ChunkFilter;
 import net.querz.mcaselector.version.VersionController;
 import net.querz.nbt.IntTag;
+import java.util.Set;
 
 public class XPosFilter extends IntFilter implements RegionMatcher {
 
@@ -39,6 +40,11 @@ public class XPosFilter extends IntFilter implements RegionMatcher {
 		return false;
 	}
 
+	@Override
+	public Set<String> getRequiredTags() {
+		return Set.of("xPos", "Level.xPos");
+	}
+
 	@Override
 	public XPosFilter clone() {
 		return new XPosFilter(getOperator(), getComparator(), value);
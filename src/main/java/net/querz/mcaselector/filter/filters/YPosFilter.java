@@ -8,6 +8,7 @@ import net.querz.mcaselector.io.mca.ChunkData;
 import net.querz.mcaselector.version.ChunkFilter;
 import net.querz.mcaselector.version.VersionController;
 import net.querz.nbt.IntTag;
+import java.util.Set;
 
 public class YPosFilter extends IntFilter {
 
@@ -29,6 +30,11 @@ public class YPosFilter extends IntFilter {
 		return tag.asInt();
 	}
 
+	@Override
+	public Set<String> getRequiredTags() {
+		return Set.of("yPos");
+	}
+
 	@Override
 	public YPosFilter clone() {
 		return new YPosFilter(getOperator(), getComparator(), value);
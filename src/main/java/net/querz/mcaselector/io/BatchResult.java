@@ -0,0 +1,20 @@
+package net.querz.mcaselector.io;
+
+import net.querz.mcaselector.progress.DurationHistogram;
+import net.querz.mcaselector.progress.Timer;
+
+// the outcome of a batch of jobs, counted when all of them are done.
+// the makespan is the time from adding the jobs until the last one was done.
+public record BatchResult(int total, int completed, int failed, int cancelled, long makespanNano, DurationHistogram durations) {
+
+	public static final BatchResult EMPTY = new BatchResult(0, 0, 0, 0, 0, new DurationHistogram());
+
+	public boolean isSuccessful() {
+		return failed == 0 && cancelled == 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d jobs: %d completed, %d failed, %d cancelled in %s", total, completed, failed, cancelled, Timer.formatNano(makespanNano));
+	}
+}
@@ -1,9 +1,8 @@
 package net.querz.mcaselector.io;
 
 import java.io.IOException;
-import java.io.InputStream;
 
-public class ByteArrayPointer extends InputStream {
+public class ByteArrayPointer extends DataPointer {
 
 	private final byte[] data;
 	private int pointer = 0;
@@ -12,14 +11,17 @@ public class ByteArrayPointer extends InputStream {
 		this.data = data;
 	}
 
+	@Override
 	public void seek(long pointer) {
 		this.pointer = (int) pointer;
 	}
 
+	@Override
 	public byte readByte() throws ArrayIndexOutOfBoundsException {
 		return data[pointer++];
 	}
 
+	@Override
 	public int readInt() throws ArrayIndexOutOfBoundsException {
 		int i = (data[pointer++] & 0xFF) << 24;
 		i |= (data[pointer++] & 0xFF) << 16;
@@ -36,4 +38,19 @@ public class ByteArrayPointer extends InputStream {
 			throw new IOException(ex);
 		}
 	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		int remaining = data.length - pointer;
+		if (remaining <= 0) {
+			throw new IOException("unexpected end of data at " + pointer);
+		}
+		int n = Math.min(len, remaining);
+		System.arraycopy(data, pointer, b, off, n);
+		pointer += n;
+		return n;
+	}
 }
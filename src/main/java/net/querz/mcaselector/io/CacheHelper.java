@@ -17,7 +17,10 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.regex.Matcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public final class CacheHelper {
 
@@ -25,23 +28,26 @@ public final class CacheHelper {
 
 	private CacheHelper() {}
 
-	public static void forceGenerateCache(Integer zoomLevel, Progress progressChannel) {
-		File[] files = ConfigProvider.WORLD.getRegionDir().listFiles((d, n) -> FileHelper.MCA_FILE_PATTERN.matcher(n).matches());
-		if (files == null || files.length == 0) {
-			return;
+	// only generates the cache for regions that contain at least one chunk of the selection, if it is not null.
+	// the returned future completes when all images have been written to the cache.
+	public static CompletableFuture<BatchResult> forceGenerateCache(Integer zoomLevel, Selection selection, Progress progressChannel) {
+		Collection<WorldIndex.RegionFile> files = WorldIndex.listRegionFiles(ConfigProvider.WORLD.getRegionDir()).values();
+		if (selection != null) {
+			files = files.stream().filter(f -> selection.isAnyChunkInRegionSelected(f.location())).toList();
+		}
+		if (files.isEmpty()) {
+			progressChannel.done("no files");
+			return CompletableFuture.completedFuture(BatchResult.EMPTY);
 		}
 
-		progressChannel.setMax(files.length);
-		progressChannel.updateProgress(files[0].getName(), 0);
+		progressChannel.setMax(files.size());
+		progressChannel.updateProgress(files.iterator().next().file().getName(), 0);
 
-		for (File file : files) {
-			Matcher m = FileHelper.REGION_GROUP_PATTERN.matcher(file.getName());
-			if (m.find()) {
-				int x = Integer.parseInt(m.group("regionX"));
-				int z = Integer.parseInt(m.group("regionZ"));
-				RegionImageGenerator.generate(new Tile(new Point2i(x, z)), (i, u) -> {}, zoomLevel, progressChannel, false, null);
-			}
+		List<Tile> tiles = new ArrayList<>(files.size());
+		for (WorldIndex.RegionFile file : files) {
+			tiles.add(new Tile(file.location()));
 		}
+		return RegionImageGenerator.generateAll(tiles, zoomLevel, progressChannel);
 	}
 
 	public static void clearAllCache(TileMap tileMap) {
@@ -0,0 +1,14 @@
+package net.querz.mcaselector.io;
+
+import java.io.InputStream;
+
+// random access view on the raw data of a region file.
+// implementations throw an IndexOutOfBoundsException when reading past the end of the data.
+public abstract class DataPointer extends InputStream {
+
+	public abstract void seek(long pointer);
+
+	public abstract byte readByte() throws IndexOutOfBoundsException;
+
+	public abstract int readInt() throws IndexOutOfBoundsException;
+}
@@ -1,6 +1,7 @@
 package net.querz.mcaselector.io;
 
 import java.util.AbstractQueue;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -9,26 +10,55 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 
+// a priority queue whose elements can change their priority while they are queued.
+// the priority of an element is only evaluated when it is added and when reprioritize() is called, so taking an
+// element is O(log n) without evaluating any priorities. elements with the same priority are taken in insertion order.
 public class DynamicPriorityBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
 
-	private Node<E> first;
-	private Node<E> last;
+	private final ToIntFunction<? super E> priorityFunction;
+
+	// binary min-heap of nodes, ordered by priority and then by sequence
+	private Node<E>[] heap;
 	private int size;
+	private long sequence;
 
 	private final ReentrantLock lock = new ReentrantLock();
 
 	private final Condition notEmpty = lock.newCondition();
 
-	public DynamicPriorityBlockingQueue() {
+	@SuppressWarnings("unchecked")
+	public DynamicPriorityBlockingQueue(ToIntFunction<? super E> priorityFunction) {
+		this.priorityFunction = priorityFunction;
+		heap = (Node<E>[]) new Node[16];
+	}
+
+	// evaluates the priorities of all queued elements again and restores the order of the queue in O(n)
+	public void reprioritize() {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			for (int i = 0; i < size; i++) {
+				heap[i].priority = priorityFunction.applyAsInt(heap[i].element);
+			}
+			heapify();
+		} finally {
+			lock.unlock();
+		}
 	}
 
+	// iterates over a snapshot of the queued elements in no particular order
 	@Override
 	public Iterator<E> iterator() {
 		final ReentrantLock lock = this.lock;
 		lock.lock();
 		try {
-			return new ElementIterator<>(first);
+			Object[] elements = new Object[size];
+			for (int i = 0; i < size; i++) {
+				elements[i] = heap[i].element;
+			}
+			return new ElementIterator(elements);
 		} finally {
 			lock.unlock();
 		}
@@ -39,16 +69,36 @@ public class DynamicPriorityBlockingQueue<E> extends AbstractQueue<E> implements
 		final ReentrantLock lock = this.lock;
 		lock.lock();
 		try {
-			boolean removed = false;
-			Iterator<Node<E>> itr = new NodeIterator<>(first);
-			while (itr.hasNext()) {
-				Node<E> node = itr.next();
-				if (filter.test(node.element)) {
-					node.remove();
-					removed = true;
+			int kept = 0;
+			for (int i = 0; i < size; i++) {
+				if (!filter.test(heap[i].element)) {
+					heap[kept++] = heap[i];
 				}
 			}
-			return removed;
+			if (kept == size) {
+				return false;
+			}
+			Arrays.fill(heap, kept, size, null);
+			size = kept;
+			heapify();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			for (int i = 0; i < size; i++) {
+				if (heap[i].element.equals(o)) {
+					removeAt(i);
+					return true;
+				}
+			}
+			return false;
 		} finally {
 			lock.unlock();
 		}
@@ -133,17 +183,20 @@ public class DynamicPriorityBlockingQueue<E> extends AbstractQueue<E> implements
 
 	@Override
 	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		// evaluate the priority before locking, the priority function might be slow
+		int priority = priorityFunction.applyAsInt(e);
 		final ReentrantLock lock = this.lock;
 		lock.lock();
 		try {
-			if (first == null) {
-				first = new Node<>(e);
-				last = first;
-			} else {
-				last.next = new Node<>(e, last);
-				last = last.next;
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, size * 2);
 			}
-			size++;
+			Node<E> node = new Node<>(e, priority, sequence++);
+			heap[size] = node;
+			siftUp(size++);
 			notEmpty.signal();
 		} finally {
 			lock.unlock();
@@ -167,10 +220,7 @@ public class DynamicPriorityBlockingQueue<E> extends AbstractQueue<E> implements
 		final ReentrantLock lock = this.lock;
 		lock.lock();
 		try {
-			if (first == null) {
-				return null;
-			}
-			return first.element;
+			return size == 0 ? null : heap[0].element;
 		} finally {
 			lock.unlock();
 		}
@@ -181,13 +231,7 @@ public class DynamicPriorityBlockingQueue<E> extends AbstractQueue<E> implements
 		final ReentrantLock lock = this.lock;
 		lock.lock();
 		try {
-			Iterator<Node<E>> itr = new NodeIterator<>(first);
-			while (itr.hasNext()) {
-				Node<E> node = itr.next();
-				node.remove();
-			}
-			first = null;
-			last = null;
+			Arrays.fill(heap, 0, size, null);
 			size = 0;
 		} finally {
 			lock.unlock();
@@ -195,109 +239,105 @@ public class DynamicPriorityBlockingQueue<E> extends AbstractQueue<E> implements
 	}
 
 	private E dequeue() {
-		if (first == null) {
+		if (size == 0) {
 			return null;
 		}
-
-		// get element with highest priority
-		Node<E> current = first;
-		Iterator<Node<E>> itr = new NodeIterator<>(first);
-		while (itr.hasNext()) {
-			Node<E> node = itr.next();
-			if (node.compareTo(current) < 0) {
-				current = node;
-			}
-		}
-		current.remove();
-		return current.element;
+		E result = heap[0].element;
+		removeAt(0);
+		return result;
 	}
 
-	private class Node<V> implements Comparable<Node<V>> {
-
-		V element;
-		Node<V> next;
-		Node<V> previous;
-
-		Node(V element) {
-			this.element = element;
+	private void removeAt(int i) {
+		int last = --size;
+		if (i != last) {
+			heap[i] = heap[last];
+			heap[last] = null;
+			siftDown(i);
+			siftUp(i);
+		} else {
+			heap[last] = null;
 		}
+	}
 
-		Node(V element, Node<V> previous) {
-			this.element = element;
-			this.previous = previous;
+	private void heapify() {
+		for (int i = (size >>> 1) - 1; i >= 0; i--) {
+			siftDown(i);
 		}
+	}
 
-		@SuppressWarnings("unchecked")
-		@Override
-		public int compareTo(Node<V> o) {
-			return ((Comparable<V>) element).compareTo(o.element);
+	private void siftUp(int i) {
+		Node<E> node = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heap[parent].compareTo(node) <= 0) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
 		}
+		heap[i] = node;
+	}
 
-		@SuppressWarnings("unchecked")
-		public void remove() {
-			if (previous != null) {
-				previous.next = next;
-			}
-			if (next != null) {
-				next.previous = previous;
-			}
-			if (this == first) {
-				first = (Node<E>) next;
+	private void siftDown(int i) {
+		Node<E> node = heap[i];
+		int half = size >>> 1;
+		while (i < half) {
+			int child = (i << 1) + 1;
+			int right = child + 1;
+			if (right < size && heap[right].compareTo(heap[child]) < 0) {
+				child = right;
 			}
-			if (this == last) {
-				last = (Node<E>) previous;
+			if (node.compareTo(heap[child]) <= 0) {
+				break;
 			}
-			next = null;
-			previous = null;
-			size--;
+			heap[i] = heap[child];
+			i = child;
 		}
+		heap[i] = node;
 	}
 
-	private class NodeIterator<V> implements Iterator<Node<V>> {
+	private static class Node<V> implements Comparable<Node<V>> {
 
-		Node<V> current;
+		final V element;
+		int priority;
+		final long sequence;
 
-		NodeIterator(Node<V> first) {
-			this.current = first;
-		}
-
-		@Override
-		public boolean hasNext() {
-			return current != null;
+		Node(V element, int priority, long sequence) {
+			this.element = element;
+			this.priority = priority;
+			this.sequence = sequence;
 		}
 
 		@Override
-		public Node<V> next() {
-			if (current == null) {
-				throw new NoSuchElementException();
+		public int compareTo(Node<V> o) {
+			if (priority == o.priority) {
+				return Long.compare(sequence, o.sequence);
 			}
-			Node<V> n = current;
-			current = current.next;
-			return n;
+			return Integer.compare(priority, o.priority);
 		}
 	}
 
-	private class ElementIterator<V> implements Iterator<V> {
+	private class ElementIterator implements Iterator<E> {
 
-		Node<V> current;
+		final Object[] elements;
+		int current;
 
-		ElementIterator(Node<V> first) {
-			this.current = first;
+		ElementIterator(Object[] elements) {
+			this.elements = elements;
 		}
 
 		@Override
 		public boolean hasNext() {
-			return current != null;
+			return current < elements.length;
 		}
 
+		@SuppressWarnings("unchecked")
 		@Override
-		public V next() {
-			if (current == null) {
+		public E next() {
+			if (current >= elements.length) {
 				throw new NoSuchElementException();
 			}
-			V e = current.element;
-			current = current.next;
-			return e;
+			return (E) elements[current++];
 		}
 	}
-}
\ No newline at end of file
+}
@@ -31,6 +31,17 @@ public abstract class Job implements Runnable {
 		return done;
 	}
 
+	private Throwable error;
+
+	// marks this job as failed because of an unhandled exception
+	public void failed(Throwable error) {
+		this.error = error;
+	}
+
+	public Throwable getError() {
+		return error;
+	}
+
 	public int getPriority() {
 		return priority;
 	}
@@ -4,39 +4,63 @@ import net.querz.mcaselector.config.ConfigProvider;
 import net.querz.mcaselector.io.job.ParseDataJob;
 import net.querz.mcaselector.io.job.ProcessDataJob;
 import net.querz.mcaselector.io.job.SaveDataJob;
+import net.querz.mcaselector.progress.DurationHistogram;
 import net.querz.mcaselector.progress.Timer;
 import net.querz.mcaselector.property.DataProperty;
 import net.querz.mcaselector.validation.ShutdownHooks;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 
 public final class JobHandler {
 
 	private static final Logger LOGGER = LogManager.getLogger(JobHandler.class);
 
-	private static PausableThreadPoolExecutor processExecutor;
+	// jobs pass through three stages: the read stage reads the files of a region on virtual threads,
+	// the process stage decodes and processes the data and the save stage writes the result.
+	// each stage has its own executor, so reading the next regions overlaps with processing and saving the current ones.
+	private static ThreadPoolExecutor readExecutor;
 
-	private static PausableThreadPoolExecutor saveExecutor;
+	private static ThreadPoolExecutor processExecutor;
+
+	private static ThreadPoolExecutor saveExecutor;
 
 	private static ThreadPoolExecutor parseExecutor;
 
+	// limits the number of regions between the read stage and the end of the save stage. jobs are only taken from
+	// the read queue when a slot is free, which bounds the memory used by data that has been read but not processed
+	// or saved yet.
+	private static Semaphore pipelineSlots;
+
+	// estimated heap usage of the regions in the pipeline in KiB. parsed chunk data is a lot larger than the files
+	// it was read from, so the size of a region's files is multiplied by the configured inflation factor.
+	// the next job is only handed to a read thread when its estimate fits into the budget.
+	private static Semaphore memoryBudget;
+	private static int memoryBudgetKiB;
+
+	// the process job whose execute() is currently running on this thread, so save jobs know where they came from
+	private static final ThreadLocal<PipelineJob> currentPipelineJob = new ThreadLocal<>();
+
 	private static final AtomicInteger allTasks = new AtomicInteger(0);
 
+	// jobs that are currently processing, saving or parsing data. jobs that are queued or reading files are not included.
 	private static final AtomicInteger runningTasks = new AtomicInteger(0);
 
-	private static boolean trimSaveData = true;
-
-	public static void setTrimSaveData(boolean trimSaveData) {
-		LOGGER.debug("{} trimming save data", (trimSaveData ? "enabled" : "disabled"));
-		JobHandler.trimSaveData = trimSaveData;
-	}
+	// completed when there are no more jobs in any of the executors, replaced when a new job is added
+	private static CompletableFuture<Void> idle = CompletableFuture.completedFuture(null);
 
 	static {
 		init();
+		ShutdownHooks.addShutdownHook(() -> readExecutor.shutdownNow());
 		ShutdownHooks.addShutdownHook(() -> processExecutor.shutdownNow());
 		ShutdownHooks.addShutdownHook(() -> saveExecutor.shutdownNow());
 		ShutdownHooks.addShutdownHook(() -> parseExecutor.shutdownNow());
@@ -47,6 +71,9 @@ public final class JobHandler {
 
 		clearQueues();
 
+		if (readExecutor != null) {
+			readExecutor.shutdownNow();
+		}
 		if (processExecutor != null) {
 			processExecutor.shutdownNow();
 		}
@@ -57,89 +84,177 @@ public final class JobHandler {
 			parseExecutor.shutdownNow();
 		}
 
-		processExecutor = new PausableThreadPoolExecutor(
-			ConfigProvider.GLOBAL.getProcessThreads(), ConfigProvider.GLOBAL.getProcessThreads(),
+		int processThreads = ConfigProvider.GLOBAL.getProcessThreads();
+		int writeThreads = ConfigProvider.GLOBAL.getWriteThreads();
+
+		// every process thread can have one region waiting for it in addition to the one it is processing
+		int slots = processThreads * 2 + writeThreads;
+		pipelineSlots = new Semaphore(slots);
+
+		memoryBudgetKiB = (int) Math.min(Runtime.getRuntime().maxMemory() / 1024 * ConfigProvider.GLOBAL.getMemoryBudget(), Integer.MAX_VALUE);
+		memoryBudget = new Semaphore(memoryBudgetKiB, true);
+		LOGGER.debug("memory budget for loaded regions is {} KiB", memoryBudgetKiB);
+
+		// reading blocks on i/o most of the time, so we use virtual threads for it
+		readExecutor = new ThreadPoolExecutor(
+			slots, slots,
 			0L, TimeUnit.MILLISECONDS,
-			new DynamicPriorityBlockingQueue<>(),
-			new NamedThreadFactory("processPool"),
-			job -> {
-				int i;
-				if ((i = runningTasks.incrementAndGet()) > ConfigProvider.GLOBAL.getProcessThreads() && !trimSaveData) {
-					processExecutor.pause("pausing process");
-				}
-				LOGGER.debug("+ active jobs: {} ({} queued)", i, processExecutor.getQueue().size());
-			},
-			job -> {
-				if (job.isDone()) {
-					int i = runningTasks.decrementAndGet();
-					LOGGER.debug("- active jobs: {} ({} queued)", i, processExecutor.getQueue().size());
-
-					processExecutor.resume("freed up a task after processing");
-				}
-			});
+			new ReadQueue(pipelineSlots, memoryBudget, memoryBudgetKiB),
+			Thread.ofVirtual().name("readPool-thread-", 0).factory());
+
+		LOGGER.debug("created data read ThreadPoolExecutor with {} virtual threads", slots);
+
+		processExecutor = new ThreadPoolExecutor(
+			processThreads, processThreads,
+			0L, TimeUnit.MILLISECONDS,
+			new DynamicPriorityBlockingQueue<>(JobHandler::getPriority),
+			new NamedThreadFactory("processPool"));
 
-		LOGGER.debug("created data processor ThreadPoolExecutor with {} threads", ConfigProvider.GLOBAL.getProcessThreads());
+		LOGGER.debug("created data processor ThreadPoolExecutor with {} threads", processThreads);
 
-		saveExecutor = new PausableThreadPoolExecutor(
-			ConfigProvider.GLOBAL.getWriteThreads(), ConfigProvider.GLOBAL.getWriteThreads(),
+		saveExecutor = new ThreadPoolExecutor(
+			writeThreads, writeThreads,
 			0L, TimeUnit.MILLISECONDS,
 			new LinkedBlockingDeque<>(),
-			new NamedThreadFactory("savePool"),
-			job -> {
-				int i = runningTasks.decrementAndGet();
-				LOGGER.debug("- active jobs: {} ({} queued)", i, processExecutor.getQueue().size());
-				processExecutor.resume("freed up a task after saving");
-			},
-			job -> {});
+			new NamedThreadFactory("savePool"));
 
-		LOGGER.debug("created data save ThreadPoolExecutor with {} threads", ConfigProvider.GLOBAL.getWriteThreads());
+		LOGGER.debug("created data save ThreadPoolExecutor with {} threads and {} pipeline slots", writeThreads, slots);
 
 		parseExecutor = new ThreadPoolExecutor(
 			1, 1,
 			0L, TimeUnit.MILLISECONDS,
-			new DynamicPriorityBlockingQueue<>(),
+			new DynamicPriorityBlockingQueue<>(JobHandler::getPriority),
 			new NamedThreadFactory("parsePool"));
 		LOGGER.debug("created data parser ThreadPoolExecutor with {} threads", 1);
 	}
 
-	public static void addJob(ProcessDataJob job) {
+	// the returned future completes when the job and all save jobs it submitted are done.
+	// it completes exceptionally when one of them failed and is cancelled when the job is cancelled.
+	public static CompletableFuture<Void> addJob(ProcessDataJob job) {
 		LOGGER.debug("adding job {} for {} to executor queue", job.getClass().getSimpleName(), job.getRegionDirectories().getLocation());
-		processExecutor.execute(new WrapperJob(job));
+		PipelineJob wrapper = new PipelineJob(job);
+		readExecutor.execute(wrapper);
+		return wrapper.future;
 	}
 
-	public static void executeSaveData(SaveDataJob<?> job) {
-		if (runningTasks.get() <= ConfigProvider.GLOBAL.getProcessThreads() + 1) {
-			saveExecutor.execute(new WrapperJob(job));
-		} else {
-			if (!trimSaveData) {
-				processExecutor.pause("waiting for save data");
-				saveExecutor.execute(new WrapperJob(job));
-			} else {
-				int i;
-				if ((i = runningTasks.decrementAndGet()) <= ConfigProvider.GLOBAL.getProcessThreads() + 1) {
-					job.cancel();
-					processExecutor.resume("skipping save data");
-					LOGGER.debug("too many tasks: skipping save data");
+	// adds all jobs and returns a future that completes with the number of completed, failed and cancelled jobs
+	// when all of them are done.
+	// the jobs are queued with the largest regions first, so a few large regions don't end up being processed
+	// at the end while all other threads are idle.
+	public static CompletableFuture<BatchResult> addJobs(List<? extends ProcessDataJob> jobs) {
+		if (jobs.isEmpty()) {
+			return CompletableFuture.completedFuture(BatchResult.EMPTY);
+		}
+		Timer makespan = new Timer();
+
+		List<ProcessDataJob> sorted = new ArrayList<>(jobs);
+		Map<ProcessDataJob, Long> sizes = new HashMap<>(sorted.size());
+		for (ProcessDataJob job : sorted) {
+			sizes.put(job, job.getRegionDirectories().getSize());
+		}
+		// jobs with the same priority are taken in the order in which they were added
+		sorted.sort(Comparator.comparingLong((ProcessDataJob j) -> sizes.get(j)).reversed());
+
+		AtomicInteger completed = new AtomicInteger(0);
+		AtomicInteger failed = new AtomicInteger(0);
+		AtomicInteger cancelled = new AtomicInteger(0);
+		DurationHistogram durations = new DurationHistogram();
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[sorted.size()];
+		for (int i = 0; i < futures.length; i++) {
+			ProcessDataJob job = sorted.get(i);
+			LOGGER.debug("adding job {} for {} to executor queue", job.getClass().getSimpleName(), job.getRegionDirectories().getLocation());
+			PipelineJob wrapper = new PipelineJob(job);
+			futures[i] = wrapper.future.handle((r, t) -> {
+				if (t == null) {
+					completed.incrementAndGet();
+					durations.record(System.nanoTime() - wrapper.startTime);
+				} else if (t instanceof CancellationException || t.getCause() instanceof CancellationException) {
+					cancelled.incrementAndGet();
+				} else {
+					failed.incrementAndGet();
+					durations.record(System.nanoTime() - wrapper.startTime);
 				}
+				return null;
+			});
+			readExecutor.execute(wrapper);
+		}
+		return CompletableFuture.allOf(futures).thenApply(v -> {
+			BatchResult result = new BatchResult(futures.length, completed.get(), failed.get(), cancelled.get(), makespan.getNano(), durations);
+			LOGGER.debug("batch done: {}, job durations: {}", result, durations);
+			return result;
+		});
+	}
 
-				LOGGER.debug("- active jobs: {} ({} queued)", i, processExecutor.getQueue().size());
-			}
+	// save jobs created by a process job take over its pipeline slot and release it when they are done.
+	// save jobs that can be skipped are cancelled when regions are waiting for a pipeline slot.
+	public static CompletableFuture<Void> executeSaveData(SaveDataJob<?> job) {
+		if (job.canSkip() && pipelineSlots.availablePermits() == 0 && !readExecutor.getQueue().isEmpty()) {
+			LOGGER.debug("pipeline is full: skipping {}", job);
+			job.cancel();
+			return CompletableFuture.completedFuture(null);
+		}
+		WrapperJob wrapper = new WrapperJob(job);
+		PipelineJob parent = currentPipelineJob.get();
+		if (parent != null) {
+			wrapper.slot = parent.slot;
+			parent.slot = null;
+			wrapper.budget = parent.budget;
+			wrapper.reservedKiB = parent.reservedKiB;
+			parent.budget = null;
+			parent.reservedKiB = 0;
+			parent.followUps.add(wrapper.future);
 		}
+		saveExecutor.execute(wrapper);
+		return wrapper.future;
 	}
 
-	public static void executeParseData(ParseDataJob job) {
-		parseExecutor.execute(new WrapperJob(job));
+	public static CompletableFuture<Void> executeParseData(ParseDataJob job) {
+		WrapperJob wrapper = new WrapperJob(job);
+		parseExecutor.execute(wrapper);
+		return wrapper.future;
+	}
+
+	// the estimated heap usage in KiB when loading and parsing the files of this region.
+	// a region that exceeds the entire budget on its own takes all of it, so it can still be processed alone.
+	private static int estimateMemory(RegionDirectories dirs, int budgetKiB) {
+		long estimate = (long) (dirs.getSize() * ConfigProvider.GLOBAL.getMemoryInflation() / 1024);
+		return (int) Math.max(Math.min(estimate, budgetKiB), 1);
+	}
+
+	// returns a future that completes when all jobs that are currently queued or running are done
+	public static CompletableFuture<Void> whenIdle() {
+		synchronized (WrapperJob.lock) {
+			return idle;
+		}
+	}
+
+	// priorities of queued jobs are only evaluated when they are queued, so this needs to be called when they change
+	public static void reprioritizeJobs() {
+		Timer t = new Timer();
+		reprioritizeExecutorQueue(readExecutor);
+		reprioritizeExecutorQueue(processExecutor);
+		reprioritizeExecutorQueue(parseExecutor);
+		LOGGER.debug("took {} to reprioritize queued jobs", t);
+	}
+
+	private static void reprioritizeExecutorQueue(ThreadPoolExecutor executor) {
+		if (executor != null && executor.getQueue() instanceof DynamicPriorityBlockingQueue<Runnable> queue) {
+			queue.reprioritize();
+		}
+	}
+
+	private static int getPriority(Runnable r) {
+		return ((WrapperJob) r).job.getPriority();
 	}
 
 	public static void validateJobs(Predicate<ProcessDataJob> p) {
-		processExecutor.getQueue().removeIf(r -> {
-			if (p.test((ProcessDataJob) ((WrapperJob) r).job)) {
-				((WrapperJob) r).cancel();
-				return true;
-			}
-			return false;
-		});
-		parseExecutor.getQueue().removeIf(r -> {
+		validateExecutorQueue(readExecutor, p);
+		validateExecutorQueue(processExecutor, p);
+		validateExecutorQueue(parseExecutor, p);
+	}
+
+	private static void validateExecutorQueue(ThreadPoolExecutor executor, Predicate<ProcessDataJob> p) {
+		executor.getQueue().removeIf(r -> {
 			if (p.test((ProcessDataJob) ((WrapperJob) r).job)) {
 				((WrapperJob) r).cancel();
 				return true;
@@ -149,10 +264,12 @@ public final class JobHandler {
 	}
 
 	public static void clearQueues() {
+		int cancelledReadJobs = cancelExecutorQueue(readExecutor);
 		int cancelledProcessJobs = cancelExecutorQueue(processExecutor);
 		int cancelledSaveJobs = cancelExecutorQueue(saveExecutor);
 		int cancelledParseJobs = cancelExecutorQueue(parseExecutor);
 
+		LOGGER.debug("cancelled {} jobs in read queue", cancelledReadJobs);
 		LOGGER.debug("cancelled {} jobs in process queue", cancelledProcessJobs);
 		LOGGER.debug("cancelled {} jobs in save queue", cancelledSaveJobs);
 		LOGGER.debug("cancelled {} jobs in parser queue", cancelledParseJobs);
@@ -201,41 +318,75 @@ public final class JobHandler {
 	}
 
 	private static void flushExecutor() {
-		while (allTasks.get() > 0) {
-			Thread.onSpinWait();
-		}
+		whenIdle().join();
 	}
 
+	// the number of jobs that are queued or running in any of the stages
 	public static int getActiveJobs() {
 		return allTasks.get();
 	}
 
+	// the number of jobs that are currently processing, saving or parsing data
+	public static int getRunningJobs() {
+		return runningTasks.get();
+	}
+
+	public static int getReadQueueSize() {
+		return getQueueSize(readExecutor);
+	}
+
+	public static int getProcessQueueSize() {
+		return getQueueSize(processExecutor);
+	}
+
+	public static int getSaveQueueSize() {
+		return getQueueSize(saveExecutor);
+	}
+
+	public static int getParseQueueSize() {
+		return getQueueSize(parseExecutor);
+	}
+
+	private static int getQueueSize(ThreadPoolExecutor executor) {
+		return executor == null ? 0 : executor.getQueue().size();
+	}
+
 	private static final AtomicLong jobIDCounter = new AtomicLong(0);
 
-	static class WrapperJob implements Runnable, Comparable<WrapperJob> {
+	static class WrapperJob implements Runnable {
 
 		Job job;
 		long jobID;
 		boolean done = false;
+		// the semaphores this job acquired its pipeline slot and memory budget from, null if it holds none.
+		// init() replaces the semaphores, so jobs that are still running release into the ones they acquired from.
+		volatile Semaphore slot = null;
+		volatile Semaphore budget = null;
+		// the memory budget reserved for the data of this job
+		volatile int reservedKiB = 0;
+		final CompletableFuture<Void> future = new CompletableFuture<>();
+		// futures of the save jobs submitted by this job, only accessed by the thread running it
+		final List<CompletableFuture<Void>> followUps = new ArrayList<>();
 		final static Object lock = new Object();
 
 		WrapperJob(Job job) {
 			jobID = jobIDCounter.incrementAndGet();
-			allTasks.incrementAndGet();
+			synchronized (lock) {
+				if (allTasks.getAndIncrement() == 0) {
+					idle = new CompletableFuture<>();
+				}
+			}
 			this.job = job;
 		}
 
 		@Override
 		public void run() {
+			runningTasks.incrementAndGet();
 			try {
 				job.run();
 			} finally {
-				synchronized (lock) {
-					if (!done) {
-						allTasks.decrementAndGet();
-					}
-					done = true;
-				}
+				runningTasks.decrementAndGet();
+				finish(false);
 			}
 		}
 
@@ -243,30 +394,163 @@ public final class JobHandler {
 			try {
 				job.cancel();
 			} finally {
-				synchronized (lock) {
-					if (!done) {
-						allTasks.decrementAndGet();
-					}
-					done = true;
+				finish(true);
+			}
+		}
+
+		void finish(boolean cancelled) {
+			CompletableFuture<Void> nowIdle = null;
+			synchronized (lock) {
+				if (done) {
+					return;
 				}
+				done = true;
+				if (allTasks.decrementAndGet() == 0) {
+					nowIdle = idle;
+				}
+			}
+			Semaphore s = slot;
+			if (s != null) {
+				slot = null;
+				s.release();
 			}
+			Semaphore b = budget;
+			if (b != null && reservedKiB > 0) {
+				b.release(reservedKiB);
+			}
+			budget = null;
+			reservedKiB = 0;
+
+			if (cancelled) {
+				future.cancel(false);
+			} else if (job.getError() != null) {
+				future.completeExceptionally(job.getError());
+			} else if (followUps.isEmpty()) {
+				future.complete(null);
+			} else {
+				CompletableFuture.allOf(followUps.toArray(new CompletableFuture<?>[0])).whenComplete((r, t) -> {
+					if (t != null) {
+						future.completeExceptionally(t);
+					} else {
+						future.complete(null);
+					}
+				});
+			}
+
+			// complete this last, so everything waiting for all jobs sees the future of this job completed
+			if (nowIdle != null) {
+				nowIdle.complete(null);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return jobID + "#" + job.toString();
+		}
+	}
+
+	// runs the read stage of a process job and then hands it over to the process stage
+	static class PipelineJob extends WrapperJob {
+
+		private boolean read = false;
+		// when the job was taken from the queue to be read
+		volatile long startTime;
+
+		PipelineJob(ProcessDataJob job) {
+			super(job);
 		}
 
 		@Override
-		public int compareTo(WrapperJob o) {
-			int a = job.getPriority();
-			int b = o.job.getPriority();
+		public void run() {
+			if (!read) {
+				read();
+			} else {
+				process();
+			}
+		}
 
-			if (a == b) {
-				return Long.compare(jobID, o.jobID);
+		// the pipeline slot and the memory budget have already been reserved by the read queue
+		private void read() {
+			startTime = System.nanoTime();
+			try {
+				((ProcessDataJob) job).read();
+			} catch (Throwable t) {
+				// the job will load its data itself when it is executed
+				LOGGER.warn("failed to read data for {}", job, t);
+			}
+			read = true;
+			try {
+				processExecutor.execute(this);
+			} catch (RejectedExecutionException ex) {
+				cancel();
 			}
+		}
 
-			return Integer.compare(a, b);
+		private void process() {
+			currentPipelineJob.set(this);
+			runningTasks.incrementAndGet();
+			try {
+				job.run();
+			} finally {
+				runningTasks.decrementAndGet();
+				currentPipelineJob.remove();
+				finish(false);
+			}
+		}
+	}
+
+	// hands jobs to the read threads in order of their priority. a job is only taken from the queue after a pipeline
+	// slot has been reserved and it keeps its place in the queue until then, so jobs that are reprioritized while
+	// the pipeline is full are still read first. only one read thread at a time waits for a slot and the memory
+	// budget of the next job, so no job can be overtaken by one with a lower priority.
+	private static class ReadQueue extends DynamicPriorityBlockingQueue<Runnable> {
+
+		private final ReentrantLock dispatchLock = new ReentrantLock();
+
+		private final Semaphore slots;
+		private final Semaphore budget;
+		private final int budgetKiB;
+
+		ReadQueue(Semaphore slots, Semaphore budget, int budgetKiB) {
+			super(JobHandler::getPriority);
+			this.slots = slots;
+			this.budget = budget;
+			this.budgetKiB = budgetKiB;
 		}
 
 		@Override
-		public String toString() {
-			return jobID + "#" + job.toString();
+		public Runnable take() throws InterruptedException {
+			dispatchLock.lockInterruptibly();
+			try {
+				slots.acquire();
+				Runnable r;
+				try {
+					r = super.take();
+				} catch (InterruptedException ex) {
+					slots.release();
+					throw ex;
+				}
+				WrapperJob job = (WrapperJob) r;
+				job.slot = slots;
+				int estimate = estimateMemory(job.job.getRegionDirectories(), budgetKiB);
+				try {
+					budget.acquire(estimate);
+				} catch (InterruptedException ex) {
+					job.cancel();
+					throw ex;
+				}
+				job.reservedKiB = estimate;
+				job.budget = budget;
+				return r;
+			} finally {
+				dispatchLock.unlock();
+			}
+		}
+
+		@Override
+		public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+			// the read threads never time out, but a job must never be taken without reserving a slot for it
+			return take();
 		}
 	}
 }
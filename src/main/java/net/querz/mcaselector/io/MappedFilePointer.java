@@ -0,0 +1,79 @@
+package net.querz.mcaselector.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+// reads region data directly from a memory mapped file instead of copying the entire file onto the heap
+public class MappedFilePointer extends DataPointer {
+
+	private static final Logger LOGGER = LogManager.getLogger(MappedFilePointer.class);
+
+	private final MappedByteBuffer data;
+	private int pointer = 0;
+
+	private MappedFilePointer(MappedByteBuffer data) {
+		this.data = data;
+	}
+
+	// returns null if the file can't be mapped, e.g. because the file system does not support it
+	public static MappedFilePointer map(File file) {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size == 0 || size > Integer.MAX_VALUE) {
+				return null;
+			}
+			// the mapping stays valid after the channel has been closed
+			return new MappedFilePointer(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		} catch (IOException | UnsupportedOperationException ex) {
+			LOGGER.debug("failed to map file {} into memory: {}", file, ex.getMessage());
+			return null;
+		}
+	}
+
+	@Override
+	public void seek(long pointer) {
+		this.pointer = (int) pointer;
+	}
+
+	@Override
+	public byte readByte() throws IndexOutOfBoundsException {
+		return data.get(pointer++);
+	}
+
+	@Override
+	public int readInt() throws IndexOutOfBoundsException {
+		int i = data.getInt(pointer);
+		pointer += 4;
+		return i;
+	}
+
+	@Override
+	public int read() throws IOException {
+		try {
+			return data.get(pointer++) & 0xFF;
+		} catch (IndexOutOfBoundsException ex) {
+			// rethrow as IOException, because InputStream treats it as EOF when reading into byte[]
+			throw new IOException(ex);
+		}
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		int remaining = data.limit() - pointer;
+		if (remaining <= 0) {
+			throw new IOException("unexpected end of mapped data at " + pointer);
+		}
+		int n = Math.min(len, remaining);
+		data.get(pointer, b, off, n);
+		pointer += n;
+		return n;
+	}
+}
@@ -75,6 +75,11 @@ public class RegionDirectories implements Cloneable {
 		);
 	}
 
+	// the combined size of the region, poi and entities files, files that are not in the WorldIndex are not accessed
+	public long getSize() {
+		return WorldIndex.getLength(region) + WorldIndex.getLength(poi) + WorldIndex.getLength(entities);
+	}
+
 	public boolean exists() {
 		return region.exists() || poi.exists() || entities.exists();
 	}
@@ -0,0 +1,156 @@
+package net.querz.mcaselector.io;
+
+import net.querz.mcaselector.config.ConfigProvider;
+import net.querz.mcaselector.validation.ShutdownHooks;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// creates temp files in the directory of their destination, so they can be moved there with an atomic rename
+// instead of copying them from the system's temp directory.
+public final class StagingHelper {
+
+	private static final Logger LOGGER = LogManager.getLogger(StagingHelper.class);
+
+	// staged files end with this suffix, so files that were left behind by a crash can be recognized
+	public static final String STAGING_SUFFIX = ".mcaselector-tmp";
+
+	// staged files that haven't been modified for this long are left over from a previous run
+	private static final long STALE_AGE = 60 * 60 * 1000;
+
+	// files that have been committed but not synced yet when using Durability.GROUP
+	private static final List<File> unsynced = new ArrayList<>();
+
+	static {
+		ShutdownHooks.addShutdownHook(StagingHelper::syncGroup);
+	}
+
+	private StagingHelper() {}
+
+	public enum Durability {
+		NONE, // leave it to the operating system when files are written to disk
+		FILE, // sync every file and its directory before and after it is moved to its destination
+		GROUP // sync committed files and their directories together every time a number of files has been committed
+	}
+
+	// the staged file is created in the directory of the destination file, its name doesn't match any mca file name
+	public static File createStagingFile(File dest) throws IOException {
+		File destDir = dest.getAbsoluteFile().getParentFile();
+		try {
+			return File.createTempFile(dest.getName() + ".", STAGING_SUFFIX, destDir);
+		} catch (IOException ex) {
+			LOGGER.warn("failed to create staging file in {}, using system temp directory", destDir, ex);
+			return File.createTempFile(dest.getName() + ".", STAGING_SUFFIX, null);
+		}
+	}
+
+	public static boolean isStagingFile(String name) {
+		return name.endsWith(STAGING_SUFFIX);
+	}
+
+	// deletes a staged file that was left behind by a previous run that crashed before it could commit or discard it
+	public static void deleteIfStale(File staged, long lastModified) {
+		if (System.currentTimeMillis() - lastModified < STALE_AGE) {
+			return;
+		}
+		if (staged.delete()) {
+			LOGGER.info("deleted stale temp file {}", staged);
+		} else {
+			LOGGER.warn("failed to delete stale temp file {}", staged);
+		}
+	}
+
+	// moves the staged file to its destination and syncs it depending on the configured durability
+	public static void commit(File staged, File dest) throws IOException {
+		Durability durability = ConfigProvider.GLOBAL.getDurability();
+		if (durability == Durability.FILE) {
+			sync(staged);
+		}
+
+		try {
+			Files.move(staged.toPath(), dest.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException ex) {
+			LOGGER.debug("atomic move from {} to {} not supported", staged, dest);
+			Files.move(staged.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		switch (durability) {
+			case FILE -> syncDirectory(dest.getAbsoluteFile().getParentFile());
+			case GROUP -> {
+				List<File> group = null;
+				synchronized (unsynced) {
+					unsynced.add(dest);
+					if (unsynced.size() >= ConfigProvider.GLOBAL.getDurabilityGroupSize()) {
+						group = new ArrayList<>(unsynced);
+						unsynced.clear();
+					}
+				}
+				if (group != null) {
+					syncAll(group);
+				}
+			}
+		}
+	}
+
+	// deletes a staged file that is not needed anymore
+	public static void discard(File staged) {
+		if (staged.exists() && !staged.delete()) {
+			LOGGER.warn("failed to delete temp file {}", staged);
+		}
+	}
+
+	// syncs all files that have been committed since the last group sync
+	public static void syncGroup() {
+		List<File> group;
+		synchronized (unsynced) {
+			if (unsynced.isEmpty()) {
+				return;
+			}
+			group = new ArrayList<>(unsynced);
+			unsynced.clear();
+		}
+		syncAll(group);
+	}
+
+	private static void syncAll(List<File> files) {
+		Set<File> dirs = new LinkedHashSet<>();
+		for (File file : files) {
+			// the file might have been deleted or replaced in the meantime
+			if (file.exists()) {
+				try {
+					sync(file);
+				} catch (IOException ex) {
+					LOGGER.warn("failed to sync {}", file, ex);
+				}
+			}
+			dirs.add(file.getAbsoluteFile().getParentFile());
+		}
+		dirs.forEach(StagingHelper::syncDirectory);
+		LOGGER.debug("synced {} files in {} directories", files.size(), dirs.size());
+	}
+
+	private static void sync(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+	}
+
+	// not all platforms support syncing directories, in which case this does nothing
+	private static void syncDirectory(File dir) {
+		try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException ex) {
+			LOGGER.debug("failed to sync directory {}: {}", dir, ex.getMessage());
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package net.querz.mcaselector.io;
+
+import net.querz.mcaselector.io.db.CacheDBController;
+import net.querz.mcaselector.progress.Timer;
+import net.querz.mcaselector.selection.ChunkSet;
+import net.querz.mcaselector.selection.Selection;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+
+// the header of an mca file contains the time each chunk was last saved. recurring operations remember when
+// they last ran and only process chunks that have been saved since then, which only requires reading headers.
+public final class Watermark {
+
+	private static final Logger LOGGER = LogManager.getLogger(Watermark.class);
+
+	private Watermark() {}
+
+	// returns the time in seconds when the operation last ran on the current world or -1 if it never did
+	public static long get(String operation) {
+		try {
+			CacheDBController.getInstance().connectToWorldCache();
+			return CacheDBController.getInstance().getWatermark(operation);
+		} catch (SQLException ex) {
+			LOGGER.warn("failed to read watermark for {}", operation, ex);
+			return -1;
+		}
+	}
+
+	public static void set(String operation, long time) {
+		try {
+			CacheDBController.getInstance().connectToWorldCache();
+			CacheDBController.getInstance().setWatermark(operation, time);
+			LOGGER.debug("set watermark for {} to {}", operation, time);
+		} catch (SQLException ex) {
+			LOGGER.warn("failed to store watermark for {}", operation, ex);
+		}
+	}
+
+	// the current time in the same unit as the timestamps in mca headers
+	public static long now() {
+		return System.currentTimeMillis() / 1000;
+	}
+
+	// returns all chunks in this selection that have been saved at or after the given time.
+	// if the selection is null, all chunks of the world are considered.
+	public static Selection getChangedChunks(WorldDirectories wd, Selection selection, long since) {
+		Timer t = new Timer();
+		Selection changed = new Selection();
+		RegionDirectories[] rd = wd.listRegions(selection);
+		ByteBuffer header = ByteBuffer.allocate(FileHelper.HEADER_SIZE);
+		int chunks = 0;
+		for (RegionDirectories r : rd) {
+			ChunkSet changedChunks = new ChunkSet();
+			readChangedChunks(r.getRegion(), since, header, changedChunks);
+			readChangedChunks(r.getPoi(), since, header, changedChunks);
+			readChangedChunks(r.getEntities(), since, header, changedChunks);
+
+			if (selection != null) {
+				ChunkSet selected = selection.getSelectedChunks(r.getLocation());
+				if (selected != null) {
+					changedChunks.removeIf(i -> !selected.get(i));
+				}
+			}
+
+			if (!changedChunks.isEmpty()) {
+				chunks += changedChunks.size();
+				changed.addAll(r.getLocation(), changedChunks);
+			}
+		}
+		LOGGER.debug("found {} chunks changed since {} in {}", chunks, since, t);
+		return changed;
+	}
+
+	private static void readChangedChunks(File file, long since, ByteBuffer header, ChunkSet changedChunks) {
+		// if the file hasn't been modified since, none of its chunks have been saved since
+		if (file == null || file.lastModified() < since * 1000 || file.length() < FileHelper.HEADER_SIZE) {
+			return;
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			raf.readFully(header.array());
+		} catch (IOException ex) {
+			LOGGER.warn("failed to read header of {}, treating all chunks as changed", file, ex);
+			changedChunks.fill();
+			return;
+		}
+		for (int i = 0; i < 1024; i++) {
+			// skip chunks that don't exist
+			if (header.getInt(i * 4) == 0) {
+				continue;
+			}
+			long timestamp = header.getInt(4096 + i * 4) & 0xFFFFFFFFL;
+			if (timestamp >= since) {
+				changedChunks.set(i);
+			}
+		}
+	}
+}
@@ -55,44 +55,31 @@ public class WorldDirectories implements Serializable, Cloneable {
 
 	public RegionDirectories[] listRegions(Selection selection) {
 		Map<Point2i, RegionDirectories> regionDirectories = new HashMap<>();
-		File[] r = this.region.listFiles((d, n) -> FileHelper.MCA_FILE_PATTERN.matcher(n).matches());
-		if (r != null) {
-			for (File f : r) {
-				Point2i l = FileHelper.parseMCAFileName(f);
-				if (selection == null || selection.isAnyChunkInRegionSelected(l.asLong())) {
-					regionDirectories.put(l, new RegionDirectories(l, f, null, null));
-				}
+		for (WorldIndex.RegionFile f : WorldIndex.listRegionFiles(this.region).values()) {
+			Point2i l = f.location();
+			if (selection == null || selection.isAnyChunkInRegionSelected(l.asLong())) {
+				regionDirectories.put(l, new RegionDirectories(l, f.file(), null, null));
 			}
 		}
 
-		if (this.entities != null) {
-			File[] p = this.entities.listFiles((d, n) -> FileHelper.MCA_FILE_PATTERN.matcher(n).matches());
-			if (p != null) {
-				for (File f : p) {
-					Point2i l = FileHelper.parseMCAFileName(f);
-					if (selection == null || selection.isAnyChunkInRegionSelected(l.asLong())) {
-						if (regionDirectories.containsKey(l)) {
-							regionDirectories.get(l).setEntities(f);
-						} else {
-							regionDirectories.put(l, new RegionDirectories(l, null, null, f));
-						}
-					}
+		for (WorldIndex.RegionFile f : WorldIndex.listRegionFiles(this.entities).values()) {
+			Point2i l = f.location();
+			if (selection == null || selection.isAnyChunkInRegionSelected(l.asLong())) {
+				if (regionDirectories.containsKey(l)) {
+					regionDirectories.get(l).setEntities(f.file());
+				} else {
+					regionDirectories.put(l, new RegionDirectories(l, null, null, f.file()));
 				}
 			}
 		}
 
-		if (this.poi != null) {
-			File[] e = this.poi.listFiles((d, n) -> FileHelper.MCA_FILE_PATTERN.matcher(n).matches());
-			if (e != null) {
-				for (File f : e) {
-					Point2i l = FileHelper.parseMCAFileName(f);
-					if (selection == null || selection.isAnyChunkInRegionSelected(l.asLong())) {
-						if (regionDirectories.containsKey(l)) {
-							regionDirectories.get(l).setPoi(f);
-						} else {
-							regionDirectories.put(l, new RegionDirectories(l, null, f, null));
-						}
-					}
+		for (WorldIndex.RegionFile f : WorldIndex.listRegionFiles(this.poi).values()) {
+			Point2i l = f.location();
+			if (selection == null || selection.isAnyChunkInRegionSelected(l.asLong())) {
+				if (regionDirectories.containsKey(l)) {
+					regionDirectories.get(l).setPoi(f.file());
+				} else {
+					regionDirectories.put(l, new RegionDirectories(l, null, f.file(), null));
 				}
 			}
 		}
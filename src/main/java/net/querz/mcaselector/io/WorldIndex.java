@@ -0,0 +1,194 @@
+package net.querz.mcaselector.io;
+
+import net.querz.mcaselector.point.Point2i;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// caches the mca files of region, poi and entities directories so that listing the regions of a world
+// doesn't scan the directories every time. a directory is only scanned again when its modification time
+// changes, which happens when files are created, deleted or renamed inside of it.
+// writing to an existing file doesn't change the modification time of its directory, so the size of a file is
+// read from the file itself whenever it is needed and only the listing is cached.
+public final class WorldIndex {
+
+	private static final Logger LOGGER = LogManager.getLogger(WorldIndex.class);
+
+	// file systems with a coarse timestamp resolution can modify a directory without changing its
+	// modification time if the modification happens shortly after a scan. listings that were created
+	// within this time frame after the last modification are not trusted.
+	private static final long RACY_INTERVAL = 2000;
+
+	private static final Map<File, DirectoryIndex> directories = new ConcurrentHashMap<>();
+
+	private WorldIndex() {}
+
+	// length and lastModified are the attributes of the file when its directory was scanned
+	public record RegionFile(Point2i location, File file, long length, long lastModified) {}
+
+	// returns all mca files in this directory mapped by their location
+	public static Map<Point2i, RegionFile> listRegionFiles(File directory) {
+		if (directory == null) {
+			return Collections.emptyMap();
+		}
+		return directories.computeIfAbsent(directory.getAbsoluteFile(), DirectoryIndex::new).list();
+	}
+
+	// returns the indexed mca file at this location or null if there is none
+	public static RegionFile getRegionFile(File file) {
+		if (file == null) {
+			return null;
+		}
+		File absolute = file.getAbsoluteFile();
+		Point2i location = FileHelper.parseMCAFileName(absolute);
+		if (location == null) {
+			return null;
+		}
+		return listRegionFiles(absolute.getParentFile()).get(location);
+	}
+
+	// returns true if this mca file exists and contains more data than just an empty header
+	public static boolean hasData(File file) {
+		return getLength(file) > FileHelper.HEADER_SIZE;
+	}
+
+	// returns the current size of this mca file or 0 if it doesn't exist.
+	// files that are not in the listing are not accessed at all.
+	public static long getLength(File file) {
+		RegionFile regionFile = getRegionFile(file);
+		return regionFile == null ? 0 : regionFile.file().length();
+	}
+
+	// returns the number of chunks referenced by the header of this mca file. the result is cached
+	// until the file's size or modification time changes.
+	public static int getChunkCount(File file) {
+		File absolute = file.getAbsoluteFile();
+		File directory = absolute.getParentFile();
+		if (directory == null) {
+			return 0;
+		}
+		return directories.computeIfAbsent(directory, DirectoryIndex::new).getChunkCount(absolute);
+	}
+
+	// drops everything that has been cached for this directory
+	public static void invalidate(File directory) {
+		if (directory != null) {
+			directories.remove(directory.getAbsoluteFile());
+		}
+	}
+
+	public static void clear() {
+		directories.clear();
+	}
+
+	private static class DirectoryIndex {
+
+		private final File directory;
+		private Map<Point2i, RegionFile> files;
+		private long lastModified;
+		private boolean trusted;
+
+		// chunk counts, only valid as long as the file's size and modification time don't change
+		private final Map<File, ChunkCount> chunkCounts = new HashMap<>();
+
+		private record ChunkCount(long length, long lastModified, int count) {}
+
+		private DirectoryIndex(File directory) {
+			this.directory = directory;
+		}
+
+		private synchronized Map<Point2i, RegionFile> list() {
+			long modified = directory.lastModified();
+			if (files == null || !trusted || modified != lastModified) {
+				long scanTime = System.currentTimeMillis();
+				files = scan();
+				lastModified = modified;
+				trusted = scanTime - modified > RACY_INTERVAL;
+			}
+			return files;
+		}
+
+		private Map<Point2i, RegionFile> scan() {
+			if (!directory.isDirectory()) {
+				return Collections.emptyMap();
+			}
+			Map<Point2i, RegionFile> result = new HashMap<>();
+			// walking the file tree provides the attributes together with the listing on some platforms,
+			// which saves us an additional access per file
+			try {
+				Files.walkFileTree(directory.toPath(), EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+						String name = file.getFileName().toString();
+						if (attrs.isRegularFile() && FileHelper.MCA_FILE_PATTERN.matcher(name).matches()) {
+							Point2i location = FileHelper.parseMCAFileName(name);
+							result.put(location, new RegionFile(location, file.toFile(), attrs.size(), attrs.lastModifiedTime().toMillis()));
+						} else if (attrs.isRegularFile() && StagingHelper.isStagingFile(name)) {
+							// temp files left behind by a crash would otherwise stay in the world forever
+							StagingHelper.deleteIfStale(file.toFile(), attrs.lastModifiedTime().toMillis());
+						}
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFileFailed(Path file, IOException exc) {
+						// files can be deleted while we are scanning
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			} catch (IOException ex) {
+				LOGGER.warn("failed to scan directory {}", directory, ex);
+			}
+			LOGGER.debug("indexed {} mca files in {}", result.size(), directory);
+			chunkCounts.keySet().removeIf(f -> !result.containsKey(FileHelper.parseMCAFileName(f)));
+			return Collections.unmodifiableMap(result);
+		}
+
+		private synchronized int getChunkCount(File file) {
+			long length = file.length();
+			long modified = file.lastModified();
+			if (length <= FileHelper.HEADER_SIZE) {
+				chunkCounts.remove(file);
+				return 0;
+			}
+			ChunkCount cached = chunkCounts.get(file);
+			if (cached != null && cached.length == length && cached.lastModified == modified) {
+				return cached.count;
+			}
+			int count = countChunks(file);
+			chunkCounts.put(file, new ChunkCount(length, modified, count));
+			return count;
+		}
+
+		private static int countChunks(File file) {
+			byte[] header = new byte[4096];
+			try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+				raf.readFully(header);
+			} catch (IOException ex) {
+				LOGGER.warn("failed to read header of {}", file, ex);
+				return 0;
+			}
+			int count = 0;
+			for (int i = 0; i < header.length; i += 4) {
+				// a chunk exists if it has an offset and at least one sector
+				if ((header[i] | header[i + 1] | header[i + 2]) != 0 && header[i + 3] != 0) {
+					count++;
+				}
+			}
+			return count;
+		}
+	}
+}
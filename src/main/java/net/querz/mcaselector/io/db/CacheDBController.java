@@ -1,7 +1,11 @@
 package net.querz.mcaselector.io.db;
 
+import net.querz.mcaselector.config.ConfigProvider;
+import net.querz.mcaselector.jfr.CacheDBEvent;
+import net.querz.mcaselector.metrics.Metrics;
 import net.querz.mcaselector.point.Point2i;
 import net.querz.mcaselector.overlay.Overlay;
+import net.querz.mcaselector.selection.ChunkSet;
 import net.querz.mcaselector.validation.ShutdownHooks;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,6 +22,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -27,6 +32,8 @@ public final class CacheDBController {
 	private static final Logger LOGGER = LogManager.getLogger(CacheDBController.class);
 
 	private volatile Connection connection;
+	// notified when a connection has been opened
+	private final Object connectionLock = new Object();
 	private String dbPath;
 	private ShutdownHooks.ShutdownJob closeShutdownHook;
 	private List<String> allTables;
@@ -82,6 +89,10 @@ public final class CacheDBController {
 		this.dbPath = dbPath;
 		addCloseShutdownHook();
 
+		synchronized (connectionLock) {
+			connectionLock.notifyAll();
+		}
+
 		initTables(overlays);
 	}
 
@@ -98,6 +109,19 @@ public final class CacheDBController {
 			"p BIGINT PRIMARY KEY, " +
 			"t BIGINT);");
 
+		// the last time an operation ran, in seconds
+		statement.executeUpdate("CREATE TABLE IF NOT EXISTS watermarks (" +
+			"o TEXT PRIMARY KEY, " +
+			"t BIGINT);");
+
+		// results of filter queries per region, only valid as long as the state of the region's files doesn't change
+		statement.executeUpdate("CREATE TABLE IF NOT EXISTS query_results (" +
+			"q TEXT, " +
+			"p BIGINT, " +
+			"f TEXT, " +
+			"d BLOB, " +
+			"PRIMARY KEY (q, p));");
+
 		allTables = new ArrayList<>();
 		ResultSet result = statement.executeQuery("SELECT name FROM sqlite_master WHERE type='table';");
 		while (result.next()) {
@@ -122,6 +146,13 @@ public final class CacheDBController {
 		return allTables != null;
 	}
 
+	// opens the cache db of the current world if no cache db is open, e.g. when running headless
+	public void connectToWorldCache() throws SQLException {
+		if (connection == null) {
+			switchTo(new File(ConfigProvider.WORLD.getCacheDir(), "cache.db").toString(), Collections.emptyList());
+		}
+	}
+
 	private void closeOnShutdown() {
 		try {
 			close();
@@ -145,11 +176,24 @@ public final class CacheDBController {
 		}
 	}
 
-	public long getFileTime(Point2i region) throws SQLException {
-		while (connection == null) {
-			Thread.onSpinWait();
+	// blocks until a connection has been opened, e.g. while switching to another world
+	private Connection awaitConnection() throws SQLException {
+		synchronized (connectionLock) {
+			Connection c;
+			while ((c = connection) == null) {
+				try {
+					connectionLock.wait();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new SQLException("interrupted while waiting for cache db connection", ex);
+				}
+			}
+			return c;
 		}
-		Statement statement = connection.createStatement();
+	}
+
+	public long getFileTime(Point2i region) throws SQLException {
+		Statement statement = awaitConnection().createStatement();
 		ResultSet result = statement.executeQuery(String.format("SELECT t FROM file_times WHERE p=%s;", region.asLong()));
 		if (!result.next()) {
 			return -1;
@@ -158,10 +202,7 @@ public final class CacheDBController {
 	}
 
 	public void setFileTime(Point2i region, long time) throws SQLException {
-		while (connection == null) {
-			Thread.onSpinWait();
-		}
-		PreparedStatement ps = connection.prepareStatement(
+		PreparedStatement ps = awaitConnection().prepareStatement(
 			"INSERT INTO file_times (p, t) " +
 				"VALUES (?, ?) " +
 				"ON CONFLICT(p) DO UPDATE " +
@@ -174,22 +215,33 @@ public final class CacheDBController {
 	}
 
 	public int[] getData(Overlay parser, Point2i region) throws IOException, SQLException {
+		long start = System.nanoTime();
+		CacheDBEvent event = new CacheDBEvent();
+		event.begin();
 		Statement statement = connection.createStatement();
 		ResultSet result = statement.executeQuery(String.format(
 				"SELECT d FROM %s%s WHERE p=%s;", parser.name(), parser.getMultiValuesID(), region.asLong()));
 		if (!result.next()) {
+			event.commit("get", parser.name(), region, 0);
+			Metrics.CACHE_DB.record(System.nanoTime() - start);
 			return null;
 		}
+		byte[] gzipped = result.getBytes(1);
 		int[] data = new int[1024];
-		try (DataInputStream dis = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(result.getBytes(1))))) {
+		try (DataInputStream dis = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(gzipped)))) {
 			for (int i = 0; i < 1024; i++) {
 				data[i] = dis.readInt();
 			}
 		}
+		event.commit("get", parser.name(), region, gzipped.length);
+		Metrics.CACHE_DB.record(System.nanoTime() - start);
 		return data;
 	}
 
 	public void setData(Overlay parser, Point2i region, int[] data) throws IOException, SQLException {
+		long start = System.nanoTime();
+		CacheDBEvent event = new CacheDBEvent();
+		event.begin();
 		PreparedStatement ps = connection.prepareStatement(String.format(
 				"INSERT INTO %s%s (p, d) " +
 						"VALUES (?, ?) " +
@@ -207,6 +259,81 @@ public final class CacheDBController {
 		ps.setBytes(3, gzipped);
 		ps.addBatch();
 		ps.executeBatch();
+		event.commit("set", parser.name(), region, gzipped.length);
+		Metrics.CACHE_DB.record(System.nanoTime() - start);
+	}
+
+	public long getWatermark(String operation) throws SQLException {
+		PreparedStatement ps = connection.prepareStatement("SELECT t FROM watermarks WHERE o=?;");
+		ps.setString(1, operation);
+		ResultSet result = ps.executeQuery();
+		if (!result.next()) {
+			return -1;
+		}
+		return result.getLong(1);
+	}
+
+	public void setWatermark(String operation, long time) throws SQLException {
+		PreparedStatement ps = connection.prepareStatement(
+			"INSERT INTO watermarks (o, t) " +
+				"VALUES (?, ?) " +
+				"ON CONFLICT(o) DO UPDATE " +
+				"SET t=?;");
+		ps.setString(1, operation);
+		ps.setLong(2, time);
+		ps.setLong(3, time);
+		ps.addBatch();
+		ps.executeBatch();
+	}
+
+	// returns the cached result of this query or null if there is none for this state of the region's files
+	public ChunkSet getQueryResult(String query, Point2i region, String fileState) throws SQLException {
+		long start = System.nanoTime();
+		CacheDBEvent event = new CacheDBEvent();
+		event.begin();
+		PreparedStatement ps = connection.prepareStatement("SELECT d FROM query_results WHERE q=? AND p=? AND f=?;");
+		ps.setString(1, query);
+		ps.setLong(2, region.asLong());
+		ps.setString(3, fileState);
+		ResultSet result = ps.executeQuery();
+		if (!result.next()) {
+			event.commit("get", "query_results", region, 0);
+			Metrics.CACHE_DB.record(System.nanoTime() - start);
+			return null;
+		}
+		byte[] data = result.getBytes(1);
+		ChunkSet chunks = new ChunkSet();
+		for (int i = 0; i < 1024; i++) {
+			if ((data[i >> 3] & (1 << (i & 7))) != 0) {
+				chunks.set(i);
+			}
+		}
+		event.commit("get", "query_results", region, data.length);
+		Metrics.CACHE_DB.record(System.nanoTime() - start);
+		return chunks;
+	}
+
+	public void setQueryResult(String query, Point2i region, String fileState, ChunkSet chunks) throws SQLException {
+		long start = System.nanoTime();
+		CacheDBEvent event = new CacheDBEvent();
+		event.begin();
+		PreparedStatement ps = connection.prepareStatement(
+			"INSERT INTO query_results (q, p, f, d) " +
+				"VALUES (?, ?, ?, ?) " +
+				"ON CONFLICT(q, p) DO UPDATE " +
+				"SET f=?, d=?;");
+		byte[] data = new byte[128];
+		chunks.forEach(i -> data[i >> 3] |= (byte) (1 << (i & 7)));
+		ps.setString(1, query);
+		ps.setLong(2, region.asLong());
+		ps.setString(3, fileState);
+		ps.setBytes(4, data);
+		ps.setString(5, fileState);
+		ps.setBytes(6, data);
+		ps.addBatch();
+		ps.executeBatch();
+		event.commit("set", "query_results", region, data.length);
+		Metrics.CACHE_DB.record(System.nanoTime() - start);
 	}
 
 	public void deleteData(Overlay parser, Point2i region) throws SQLException {
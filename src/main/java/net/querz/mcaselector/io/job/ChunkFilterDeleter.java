@@ -1,10 +1,14 @@
 package net.querz.mcaselector.io.job;
 
 import net.querz.mcaselector.config.ConfigProvider;
+import net.querz.mcaselector.filter.FilterCompiler;
 import net.querz.mcaselector.filter.filters.GroupFilter;
+import net.querz.mcaselector.io.BatchResult;
+import net.querz.mcaselector.io.DataPointer;
 import net.querz.mcaselector.io.JobHandler;
 import net.querz.mcaselector.io.RegionDirectories;
 import net.querz.mcaselector.io.WorldDirectories;
+import net.querz.mcaselector.io.mca.ChunkData;
 import net.querz.mcaselector.io.mca.Region;
 import net.querz.mcaselector.point.Point2i;
 import net.querz.mcaselector.progress.Progress;
@@ -12,7 +16,11 @@ import net.querz.mcaselector.selection.Selection;
 import net.querz.mcaselector.text.Translation;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public final class ChunkFilterDeleter {
 
@@ -20,7 +28,7 @@ public final class ChunkFilterDeleter {
 
 	private ChunkFilterDeleter() {}
 
-	public static void deleteFilter(GroupFilter filter, Selection selection, Progress progressChannel, boolean headless) {
+	public static CompletableFuture<BatchResult> deleteFilter(GroupFilter filter, Selection selection, Progress progressChannel, boolean headless) {
 		WorldDirectories wd = ConfigProvider.WORLD.getWorldDirs();
 		RegionDirectories[] rd = wd.listRegions(selection);
 		if (rd == null || rd.length == 0) {
@@ -29,7 +37,7 @@ public final class ChunkFilterDeleter {
 			} else {
 				progressChannel.done(Translation.DIALOG_PROGRESS_NO_FILES.toString());
 			}
-			return;
+			return CompletableFuture.completedFuture(BatchResult.EMPTY);
 		}
 
 		JobHandler.clearQueues();
@@ -39,26 +47,42 @@ public final class ChunkFilterDeleter {
 
 		Consumer<Throwable> errorHandler = t -> progressChannel.incrementProgress("error");
 
+		// the filter is compiled once for all regions
+		Predicate<ChunkData> predicate = FilterCompiler.compile(filter);
+
+		List<ProcessDataJob> jobs = new ArrayList<>();
 		for (RegionDirectories r : rd) {
-			MCADeleteFilterProcessJob job = new MCADeleteFilterProcessJob(r, filter, selection, progressChannel);
+			MCADeleteFilterProcessJob job = new MCADeleteFilterProcessJob(r, filter, predicate, selection, progressChannel);
 			job.errorHandler = errorHandler;
-			JobHandler.addJob(job);
+			jobs.add(job);
 		}
+
+		return JobHandler.addJobs(jobs);
 	}
 
 	private static class MCADeleteFilterProcessJob extends ProcessDataJob {
 
 		private final Progress progressChannel;
 		private final GroupFilter filter;
+		private final Predicate<ChunkData> predicate;
 		private final Selection selection;
 
-		private MCADeleteFilterProcessJob(RegionDirectories dirs, GroupFilter filter, Selection selection, Progress progressChannel) {
+		private MCADeleteFilterProcessJob(RegionDirectories dirs, GroupFilter filter, Predicate<ChunkData> predicate, Selection selection, Progress progressChannel) {
 			super(dirs, PRIORITY_LOW);
 			this.filter = filter;
+			this.predicate = predicate;
 			this.selection = selection;
 			this.progressChannel = progressChannel;
 		}
 
+		@Override
+		public void read() {
+			Point2i location = getRegionDirectories().getLocation();
+			if (filter.appliesToRegion(location) && (selection == null || selection.isAnyChunkInRegionSelected(location))) {
+				readAll();
+			}
+		}
+
 		@Override
 		public boolean execute() {
 			// load all files
@@ -70,9 +94,9 @@ public final class ChunkFilterDeleter {
 				return true;
 			}
 
-			byte[] regionData = loadRegion();
-			byte[] poiData = loadPoi();
-			byte[] entitiesData = loadEntities();
+			DataPointer regionData = loadRegion();
+			DataPointer poiData = loadPoi();
+			DataPointer entitiesData = loadEntities();
 
 			if (regionData == null && poiData == null && entitiesData == null) {
 				LOGGER.warn("failed to load any data from {}", getRegionDirectories().getLocationAsFileName());
@@ -85,7 +109,7 @@ public final class ChunkFilterDeleter {
 				// parse raw data
 				Region region = Region.loadRegion(getRegionDirectories(), regionData, poiData, entitiesData);
 
-				if (region.deleteChunks(filter, selection)) {
+				if (region.deleteChunks(predicate, selection)) {
 					// only save file if we actually deleted something
 					MCADeleteFilterSaveJob job = new MCADeleteFilterSaveJob(getRegionDirectories(), region, progressChannel);
 					job.errorHandler = errorHandler;
@@ -115,7 +139,12 @@ public final class ChunkFilterDeleter {
 		@Override
 		public void execute() {
 			try {
-				getData().deFragment();
+				if (ConfigProvider.GLOBAL.getHeaderOnlyDelete()) {
+					// dead sectors are reclaimed later by RegionCompactor
+					getData().saveHeaders();
+				} else {
+					getData().deFragment();
+				}
 			} catch (Exception ex) {
 				LOGGER.warn("failed to delete filtered chunks from {}", getRegionDirectories().getLocationAsFileName(), ex);
 			}
@@ -1,10 +1,14 @@
 package net.querz.mcaselector.io.job;
 
 import net.querz.mcaselector.config.ConfigProvider;
+import net.querz.mcaselector.filter.FilterCompiler;
 import net.querz.mcaselector.filter.filters.GroupFilter;
+import net.querz.mcaselector.io.BatchResult;
+import net.querz.mcaselector.io.DataPointer;
 import net.querz.mcaselector.io.JobHandler;
 import net.querz.mcaselector.io.RegionDirectories;
 import net.querz.mcaselector.io.WorldDirectories;
+import net.querz.mcaselector.io.mca.ChunkData;
 import net.querz.mcaselector.io.mca.Region;
 import net.querz.mcaselector.point.Point2i;
 import net.querz.mcaselector.progress.Progress;
@@ -14,7 +18,11 @@ import net.querz.mcaselector.text.Translation;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public final class ChunkFilterExporter {
 
@@ -22,7 +30,7 @@ public final class ChunkFilterExporter {
 
 	private ChunkFilterExporter() {}
 
-	public static void exportFilter(GroupFilter filter, Selection selection, WorldDirectories destination, Progress progressChannel, boolean headless) {
+	public static CompletableFuture<BatchResult> exportFilter(GroupFilter filter, Selection selection, WorldDirectories destination, Progress progressChannel, boolean headless) {
 		WorldDirectories wd = ConfigProvider.WORLD.getWorldDirs();
 		RegionDirectories[] rd = wd.listRegions(selection);
 		if (rd == null || rd.length == 0) {
@@ -31,7 +39,7 @@ public final class ChunkFilterExporter {
 			} else {
 				progressChannel.done(Translation.DIALOG_PROGRESS_NO_FILES.toString());
 			}
-			return;
+			return CompletableFuture.completedFuture(BatchResult.EMPTY);
 		}
 
 		JobHandler.clearQueues();
@@ -41,28 +49,44 @@ public final class ChunkFilterExporter {
 
 		Consumer<Throwable> errorHandler = t -> progressChannel.incrementProgress("error");
 
+		// the filter is compiled once for all regions
+		Predicate<ChunkData> predicate = FilterCompiler.compile(filter);
+
+		List<ProcessDataJob> jobs = new ArrayList<>();
 		for (RegionDirectories r : rd) {
-			MCAExportFilterProcessJob job = new MCAExportFilterProcessJob(r, filter, selection, destination, progressChannel);
+			MCAExportFilterProcessJob job = new MCAExportFilterProcessJob(r, filter, predicate, selection, destination, progressChannel);
 			job.errorHandler = errorHandler;
-			JobHandler.addJob(job);
+			jobs.add(job);
 		}
+
+		return JobHandler.addJobs(jobs);
 	}
 
 	private static class MCAExportFilterProcessJob extends ProcessDataJob {
 
 		private final Progress progressChannel;
 		private final GroupFilter filter;
+		private final Predicate<ChunkData> predicate;
 		private final Selection selection;
 		private final WorldDirectories destination;
 
-		private MCAExportFilterProcessJob(RegionDirectories dirs, GroupFilter filter, Selection selection, WorldDirectories destination, Progress progressChannel) {
+		private MCAExportFilterProcessJob(RegionDirectories dirs, GroupFilter filter, Predicate<ChunkData> predicate, Selection selection, WorldDirectories destination, Progress progressChannel) {
 			super(dirs, PRIORITY_LOW);
 			this.filter = filter;
+			this.predicate = predicate;
 			this.selection = selection;
 			this.destination = destination;
 			this.progressChannel = progressChannel;
 		}
 
+		@Override
+		public void read() {
+			Point2i location = getRegionDirectories().getLocation();
+			if (filter.appliesToRegion(location) && (selection == null || selection.isAnyChunkInRegionSelected(location))) {
+				readAll();
+			}
+		}
+
 		@Override
 		public boolean execute() {
 			Point2i location = getRegionDirectories().getLocation();
@@ -84,9 +108,9 @@ public final class ChunkFilterExporter {
 
 			RegionDirectories to = new RegionDirectories(getRegionDirectories().getLocation(), toRegion, toPoi, toEntities);
 
-			byte[] regionData = loadRegion();
-			byte[] poiData = loadPoi();
-			byte[] entitiesData = loadEntities();
+			DataPointer regionData = loadRegion();
+			DataPointer poiData = loadPoi();
+			DataPointer entitiesData = loadEntities();
 
 			if (regionData == null && poiData == null && entitiesData == null) {
 				LOGGER.warn("failed to load any data from {}", getRegionDirectories().getLocationAsFileName());
@@ -99,7 +123,7 @@ public final class ChunkFilterExporter {
 			try {
 				Region region = Region.loadRegion(getRegionDirectories(), regionData, poiData, entitiesData);
 
-				region.keepChunks(filter, selection);
+				region.keepChunks(predicate, selection);
 
 				MCAExportFilterSaveJob job = new MCAExportFilterSaveJob(getRegionDirectories(), region, to, progressChannel);
 				job.errorHandler = errorHandler;
@@ -1,10 +1,16 @@
 package net.querz.mcaselector.io.job;
 
 import net.querz.mcaselector.config.ConfigProvider;
+import net.querz.mcaselector.filter.FilterCompiler;
 import net.querz.mcaselector.filter.filters.GroupFilter;
+import net.querz.mcaselector.io.BatchResult;
+import net.querz.mcaselector.io.DataPointer;
 import net.querz.mcaselector.io.JobHandler;
 import net.querz.mcaselector.io.RegionDirectories;
 import net.querz.mcaselector.io.WorldDirectories;
+import net.querz.mcaselector.io.db.CacheDBController;
+import net.querz.mcaselector.io.mca.ChunkData;
+import net.querz.mcaselector.io.mca.PartialNBTReader;
 import net.querz.mcaselector.io.mca.Region;
 import net.querz.mcaselector.selection.ChunkSet;
 import net.querz.mcaselector.selection.Selection;
@@ -15,7 +21,14 @@ import net.querz.mcaselector.progress.Timer;
 import net.querz.mcaselector.text.Translation;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public final class ChunkFilterSelector {
 
@@ -23,7 +36,7 @@ public final class ChunkFilterSelector {
 
 	private ChunkFilterSelector() {}
 
-	public static void selectFilter(GroupFilter filter, Selection selection, int radius, Consumer<Selection> callback, Progress progressChannel, boolean cli) {
+	public static CompletableFuture<BatchResult> selectFilter(GroupFilter filter, Selection selection, int radius, Consumer<Selection> callback, Progress progressChannel, boolean cli) {
 		WorldDirectories wd = ConfigProvider.WORLD.getWorldDirs();
 		RegionDirectories[] rd = wd.listRegions(selection);
 		if (rd == null || rd.length == 0) {
@@ -32,7 +45,7 @@ public final class ChunkFilterSelector {
 			} else {
 				progressChannel.done(Translation.DIALOG_PROGRESS_NO_FILES.toString());
 			}
-			return;
+			return CompletableFuture.completedFuture(BatchResult.EMPTY);
 		}
 
 		JobHandler.clearQueues();
@@ -42,28 +55,151 @@ public final class ChunkFilterSelector {
 
 		Consumer<Throwable> errorHandler = t -> progressChannel.incrementProgress("error");
 
+		String queryCacheKey = getQueryCacheKey(filter, selection);
+
+		// the filter is compiled once for all regions
+		Predicate<ChunkData> predicate = FilterCompiler.compile(filter);
+
+		List<ProcessDataJob> jobs = new ArrayList<>();
 		for (RegionDirectories r : rd) {
-			MCASelectFilterProcessJob job = new MCASelectFilterProcessJob(r, filter, selection, callback, radius, progressChannel);
+			MCASelectFilterProcessJob job = new MCASelectFilterProcessJob(r, filter, predicate, selection, callback, radius, queryCacheKey, progressChannel);
 			job.errorHandler = errorHandler;
-			JobHandler.addJob(job);
+			jobs.add(job);
+		}
+
+		return JobHandler.addJobs(jobs);
+	}
+
+	// returns the normalized query if its results can be cached, otherwise null
+	private static String getQueryCacheKey(GroupFilter filter, Selection selection) {
+		// the result of a query with a selection depends on that selection, so we only cache queries for the entire world
+		if (!ConfigProvider.GLOBAL.getQueryCache() || selection != null || !filter.isCacheable()) {
+			return null;
+		}
+		try {
+			CacheDBController.getInstance().connectToWorldCache();
+		} catch (SQLException ex) {
+			LOGGER.warn("failed to open cache db, query results will not be cached", ex);
+			return null;
 		}
+		return filter.toString();
+	}
+
+	// the state of a region's files, if any of them changes, cached query results for that region become invalid
+	private static String getFileState(RegionDirectories dirs) {
+		return getFileState(dirs.getRegion()) + ";" + getFileState(dirs.getPoi()) + ";" + getFileState(dirs.getEntities());
+	}
+
+	private static String getFileState(File file) {
+		return file == null ? "-" : file.length() + ":" + file.lastModified();
+	}
+
+	// files that have been modified very recently might still change without their modification time changing
+	private static boolean isRecentlyModified(RegionDirectories dirs) {
+		long threshold = System.currentTimeMillis() - 2000;
+		return dirs.getRegion() != null && dirs.getRegion().lastModified() > threshold
+				|| dirs.getPoi() != null && dirs.getPoi().lastModified() > threshold
+				|| dirs.getEntities() != null && dirs.getEntities().lastModified() > threshold;
 	}
 
 	private static class MCASelectFilterProcessJob extends ProcessDataJob {
 
 		private final Progress progressChannel;
 		private final GroupFilter filter;
+		private final Predicate<ChunkData> predicate;
 		private final Selection selection;
 		private final Consumer<Selection> callback;
 		private final int radius;
+		private final String queryCacheKey;
 
-		private MCASelectFilterProcessJob(RegionDirectories dirs, GroupFilter filter, Selection selection, Consumer<Selection> callback, int radius,  Progress progressChannel) {
+		private MCASelectFilterProcessJob(RegionDirectories dirs, GroupFilter filter, Predicate<ChunkData> predicate, Selection selection, Consumer<Selection> callback, int radius, String queryCacheKey, Progress progressChannel) {
 			super(dirs, PRIORITY_LOW);
 			this.filter = filter;
+			this.predicate = predicate;
 			this.selection = selection;
 			this.callback = callback;
 			this.progressChannel = progressChannel;
 			this.radius = radius;
+			this.queryCacheKey = queryCacheKey;
+		}
+
+		// the result of the query cache and header lookups, done by prepare()
+		private boolean prepared = false;
+		private String fileState;
+		// the chunks of this region that were selected without loading any chunk data, or null if some are undecided
+		private ChunkSet decided;
+		// the chunks that matched the headers and the chunks that still need to be loaded to be decided
+		private ChunkSet headerMatches;
+		private Selection undecided;
+
+		@Override
+		public void read() {
+			// the query cache and the headers are looked up here, so only regions they can't decide are read ahead
+			if (!filter.appliesToRegion(getRegionDirectories().getLocation())) {
+				return;
+			}
+			prepare();
+			if (decided != null) {
+				return;
+			}
+			if (PartialNBTReader.of(filter) == null) {
+				readAll();
+			} else {
+				readAhead(getRegionDirectories().getRegion());
+			}
+		}
+
+		// looks up the cached query result and evaluates the conditions that can be decided from the headers.
+		// chunks that are decided by the headers don't need to be loaded at all.
+		private void prepare() {
+			if (prepared) {
+				return;
+			}
+			prepared = true;
+			undecided = this.selection;
+			Point2i location = getRegionDirectories().getLocation();
+
+			// skip regions whose files haven't changed since the last time this query was run
+			if (queryCacheKey != null) {
+				fileState = getFileState(getRegionDirectories());
+				try {
+					ChunkSet cached = CacheDBController.getInstance().getQueryResult(queryCacheKey, location, fileState);
+					if (cached != null) {
+						LOGGER.debug("using cached query result for {}", getRegionDirectories().getLocationAsFileName());
+						decided = cached;
+						return;
+					}
+				} catch (SQLException ex) {
+					LOGGER.warn("failed to read cached query result for {}", getRegionDirectories().getLocationAsFileName(), ex);
+				}
+			}
+
+			if (!filter.hasHeaderMatcher()) {
+				return;
+			}
+			byte[] regionHeader = loadRegionHeader();
+			byte[] poiHeader = loadPoiHeader();
+			byte[] entitiesHeader = loadEntitiesHeader();
+			if (regionHeader == null && poiHeader == null && entitiesHeader == null) {
+				return;
+			}
+			try {
+				Region headers = Region.loadRegionHeaders(getRegionDirectories(), regionHeader, poiHeader, entitiesHeader);
+				ChunkSet matching = new ChunkSet();
+				ChunkSet undecidedChunks = new ChunkSet();
+				headers.getHeaderFilteredChunks(filter, predicate, this.selection, matching, undecidedChunks);
+				if (undecidedChunks.isEmpty()) {
+					LOGGER.debug("selected chunks in {} using only the headers", getRegionDirectories().getLocationAsFileName());
+					cacheResult(location, fileState, matching);
+					decided = matching;
+					return;
+				}
+				headerMatches = matching;
+				undecided = new Selection();
+				undecided.addAll(location, undecidedChunks);
+			} catch (IOException ex) {
+				LOGGER.warn("failed to read headers of {}", getRegionDirectories().getLocationAsFileName(), ex);
+			}
 		}
 
 		@Override
@@ -77,9 +213,20 @@ public final class ChunkFilterSelector {
 				return true;
 			}
 
-			byte[] regionData = loadRegion();
-			byte[] poiData = loadPoi();
-			byte[] entitiesData = loadEntities();
+			// usually already done by the read stage
+			prepare();
+			if (decided != null) {
+				select(location, decided);
+				progressChannel.incrementProgress(getRegionDirectories().getLocationAsFileName());
+				return true;
+			}
+
+			// if the filter only reads a few region tags, we don't need to load poi and entities at all
+			PartialNBTReader partialReader = PartialNBTReader.of(filter);
+
+			DataPointer regionData = loadRegion();
+			DataPointer poiData = partialReader == null ? loadPoi() : null;
+			DataPointer entitiesData = partialReader == null ? loadEntities() : null;
 
 			if (regionData == null && poiData == null && entitiesData == null) {
 				LOGGER.warn("failed to load any data from {}", getRegionDirectories().getLocationAsFileName());
@@ -90,20 +237,15 @@ public final class ChunkFilterSelector {
 			// load MCAFile
 			Timer t = new Timer();
 			try {
-				Region region = Region.loadRegion(getRegionDirectories(), regionData, poiData, entitiesData);
+				Region region = Region.loadRegion(getRegionDirectories(), regionData, poiData, entitiesData, partialReader);
 
-				ChunkSet chunks = region.getFilteredChunks(filter, this.selection);
-				if (chunks.size() > 0) {
-					if (chunks.size() == Tile.CHUNKS) {
-						chunks = null;
-					}
-					Selection selection = new Selection();
-					selection.addAll(location, chunks);
-
-					selection.addRadius(radius, this.selection);
-
-					callback.accept(selection);
+				ChunkSet chunks = region.getFilteredChunks(predicate, undecided);
+				if (headerMatches != null) {
+					chunks.or(headerMatches);
 				}
+
+				cacheResult(location, fileState, chunks);
+				select(location, chunks);
 				LOGGER.debug("took {} to select chunks in {}", t, getRegionDirectories().getLocationAsFileName());
 			} catch (Exception ex) {
 				LOGGER.warn("error selecting chunks in {}", getRegionDirectories().getLocationAsFileName(), ex);
@@ -111,5 +253,29 @@ public final class ChunkFilterSelector {
 			progressChannel.incrementProgress(getRegionDirectories().getLocationAsFileName());
 			return true;
 		}
+
+		private void cacheResult(Point2i location, String fileState, ChunkSet chunks) {
+			if (queryCacheKey != null && !isRecentlyModified(getRegionDirectories())) {
+				try {
+					CacheDBController.getInstance().setQueryResult(queryCacheKey, location, fileState, chunks);
+				} catch (SQLException ex) {
+					LOGGER.warn("failed to cache query result for {}", getRegionDirectories().getLocationAsFileName(), ex);
+				}
+			}
+		}
+
+		private void select(Point2i location, ChunkSet chunks) {
+			if (chunks.size() > 0) {
+				if (chunks.size() == Tile.CHUNKS) {
+					chunks = null;
+				}
+				Selection selection = new Selection();
+				selection.addAll(location, chunks);
+
+				selection.addRadius(radius, this.selection);
+
+				callback.accept(selection);
+			}
+		}
 	}
 }
@@ -5,11 +5,12 @@ import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
 import net.querz.mcaselector.config.ConfigProvider;
-import net.querz.mcaselector.io.ByteArrayPointer;
+import net.querz.mcaselector.io.DataPointer;
 import net.querz.mcaselector.io.FileHelper;
 import net.querz.mcaselector.io.JobHandler;
 import net.querz.mcaselector.io.RegionDirectories;
 import net.querz.mcaselector.io.WorldDirectories;
+import net.querz.mcaselector.io.WorldIndex;
 import net.querz.mcaselector.io.mca.EntitiesMCAFile;
 import net.querz.mcaselector.io.mca.PoiMCAFile;
 import net.querz.mcaselector.io.mca.Region;
@@ -180,7 +181,7 @@ public final class ChunkImporter {
 				if (!getRegionDirectories().getRegion().exists()) {
 					//if the entire mca file doesn't exist, just copy it over
 					File source = new File(sourceDirs.getRegion(), getRegionDirectories().getLocationAsFileName());
-					if (source.exists()) {
+					if (WorldIndex.getRegionFile(source) != null) {
 						try {
 							Files.copy(source.toPath(), getRegionDirectories().getRegion().toPath());
 						} catch (IOException ex) {
@@ -193,7 +194,7 @@ public final class ChunkImporter {
 
 				if (!getRegionDirectories().getPoi().exists() && sourceDirs.getPoi() != null) {
 					File source = new File(sourceDirs.getPoi(), getRegionDirectories().getLocationAsFileName());
-					if (source.exists()) {
+					if (WorldIndex.getRegionFile(source) != null) {
 						try {
 							Files.copy(source.toPath(), getRegionDirectories().getPoi().toPath());
 						} catch (IOException ex) {
@@ -206,7 +207,7 @@ public final class ChunkImporter {
 
 				if (!getRegionDirectories().getEntities().exists() && sourceDirs.getEntities() != null) {
 					File source = new File(sourceDirs.getEntities(), getRegionDirectories().getLocationAsFileName());
-					if (source.exists()) {
+					if (WorldIndex.getRegionFile(source) != null) {
 						try {
 							Files.copy(source.toPath(), getRegionDirectories().getEntities().toPath());
 						} catch (IOException ex) {
@@ -226,9 +227,9 @@ public final class ChunkImporter {
 			// ---------------------------------------------------------------------------------------------------------
 
 			// LOAD SOURCE DATA
-			Map<Point2i, byte[]> sourceDataMappingRegion = new HashMap<>();
-			Map<Point2i, byte[]> sourceDataMappingPoi = new HashMap<>();
-			Map<Point2i, byte[]> sourceDataMappingEntities = new HashMap<>();
+			Map<Point2i, DataPointer> sourceDataMappingRegion = new HashMap<>();
+			Map<Point2i, DataPointer> sourceDataMappingPoi = new HashMap<>();
+			Map<Point2i, DataPointer> sourceDataMappingEntities = new HashMap<>();
 
 			for (long source : sourceRegions) {
 				Point2i s = new Point2i(source);
@@ -240,16 +241,20 @@ public final class ChunkImporter {
 				}
 
 				File sourceFile;
-				byte[] sourceData;
+				boolean sourceExists;
+				DataPointer sourceData;
 
 				// region
 				if (sourceDirs.getRegion() != null) {
 					sourceFile = sourceDirs.getRegion();
+					sourceExists = sourceFile.exists();
 				} else {
+					// source files of the source world are looked up in its index
 					sourceFile = new File(this.sourceDirs.getRegion(), FileHelper.createMCAFileName(s));
+					sourceExists = WorldIndex.getRegionFile(sourceFile) != null;
 				}
-				if (sourceFile.exists()) {
-					sourceData = load(sourceFile);
+				if (sourceExists) {
+					sourceData = loadData(sourceFile);
 					if (sourceData == null) {
 						LOGGER.warn("failed to load source mca file {}", sourceFile);
 					} else {
@@ -260,11 +265,14 @@ public final class ChunkImporter {
 				// poi
 				if (sourceDirs.getPoi() != null) {
 					sourceFile = sourceDirs.getPoi();
+					sourceExists = sourceFile.exists();
 				} else {
+					// source files of the source world are looked up in its index
 					sourceFile = new File(this.sourceDirs.getPoi(), FileHelper.createMCAFileName(s));
+					sourceExists = WorldIndex.getRegionFile(sourceFile) != null;
 				}
-				if (sourceFile.exists()) {
-					sourceData = load(sourceFile);
+				if (sourceExists) {
+					sourceData = loadData(sourceFile);
 					if (sourceData == null) {
 						LOGGER.warn("failed to load source mca file {}", sourceFile);
 					} else {
@@ -275,11 +283,14 @@ public final class ChunkImporter {
 				// entities
 				if (sourceDirs.getEntities() != null) {
 					sourceFile = sourceDirs.getEntities();
+					sourceExists = sourceFile.exists();
 				} else {
+					// source files of the source world are looked up in its index
 					sourceFile = new File(this.sourceDirs.getEntities(), FileHelper.createMCAFileName(s));
+					sourceExists = WorldIndex.getRegionFile(sourceFile) != null;
 				}
-				if (sourceFile.exists()) {
-					sourceData = load(sourceFile);
+				if (sourceExists) {
+					sourceData = loadData(sourceFile);
 					if (sourceData == null) {
 						LOGGER.warn("failed to load source mca file {}", sourceFile);
 					} else {
@@ -300,9 +311,9 @@ public final class ChunkImporter {
 			// ---------------------------------------------------------------------------------------------------------
 
 			// LOAD DESTINATION DATA
-			byte[] destDataRegion = null;
+			DataPointer destDataRegion = null;
 			if (getRegionDirectories().getRegion().exists() && getRegionDirectories().getRegion().length() > 0) {
-				destDataRegion = load(getRegionDirectories().getRegion());
+				destDataRegion = loadData(getRegionDirectories().getRegion());
 				if (destDataRegion == null) {
 					LOGGER.warn("failed to load destination mca file {}", getRegionDirectories().getRegion());
 					progressChannel.incrementProgress(getRegionDirectories().getLocationAsFileName());
@@ -310,9 +321,9 @@ public final class ChunkImporter {
 				}
 			}
 
-			byte[] destDataPoi = null;
+			DataPointer destDataPoi = null;
 			if (getRegionDirectories().getPoi().exists() && getRegionDirectories().getPoi().length() > 0) {
-				destDataPoi = load(getRegionDirectories().getPoi());
+				destDataPoi = loadData(getRegionDirectories().getPoi());
 				if (destDataPoi == null) {
 					LOGGER.warn("failed to load destination mca file {}", getRegionDirectories().getPoi());
 					progressChannel.incrementProgress(getRegionDirectories().getLocationAsFileName());
@@ -320,9 +331,9 @@ public final class ChunkImporter {
 				}
 			}
 
-			byte[] destDataEntities = null;
+			DataPointer destDataEntities = null;
 			if (getRegionDirectories().getEntities().exists() && getRegionDirectories().getEntities().length() > 0) {
-				destDataEntities = load(getRegionDirectories().getEntities());
+				destDataEntities = loadData(getRegionDirectories().getEntities());
 				if (destDataEntities == null) {
 					LOGGER.warn("failed to load destination mca file {}", getRegionDirectories().getEntities());
 					progressChannel.incrementProgress(getRegionDirectories().getLocationAsFileName());
@@ -340,9 +351,9 @@ public final class ChunkImporter {
 					targetChunks = targetSelection.getSelectedChunks(target);
 				}
 
-				for (Map.Entry<Point2i, byte[]> sourceData : sourceDataMappingRegion.entrySet()) {
+				for (Map.Entry<Point2i, DataPointer> sourceData : sourceDataMappingRegion.entrySet()) {
 					RegionMCAFile source = new RegionMCAFile(new File(sourceDirs.getRegion(), FileHelper.createMCAFileName(sourceData.getKey())));
-					source.load(new ByteArrayPointer(sourceData.getValue()));
+					source.load(sourceData.getValue());
 
 					LOGGER.debug("merging region chunks from {} into {}", sourceData.getKey(), target);
 
@@ -358,9 +369,9 @@ public final class ChunkImporter {
 					source.mergeChunksInto(targetRegion.getRegion(), offset, overwrite, sourceChunks, targetChunks, ranges);
 				}
 
-				for (Map.Entry<Point2i, byte[]> sourceData : sourceDataMappingPoi.entrySet()) {
+				for (Map.Entry<Point2i, DataPointer> sourceData : sourceDataMappingPoi.entrySet()) {
 					PoiMCAFile source = new PoiMCAFile(new File(sourceDirs.getPoi(), FileHelper.createMCAFileName(sourceData.getKey())));
-					source.load(new ByteArrayPointer(sourceData.getValue()));
+					source.load(sourceData.getValue());
 
 					LOGGER.debug("merging poi chunks from {} into {}", sourceData.getKey(), target);
 
@@ -376,9 +387,9 @@ public final class ChunkImporter {
 					source.mergeChunksInto(targetRegion.getPoi(), offset, overwrite, sourceChunks, targetChunks, ranges);
 				}
 
-				for (Map.Entry<Point2i, byte[]> sourceData : sourceDataMappingEntities.entrySet()) {
+				for (Map.Entry<Point2i, DataPointer> sourceData : sourceDataMappingEntities.entrySet()) {
 					EntitiesMCAFile source = new EntitiesMCAFile(new File(sourceDirs.getEntities(), FileHelper.createMCAFileName(sourceData.getKey())));
-					source.load(new ByteArrayPointer(sourceData.getValue()));
+					source.load(sourceData.getValue());
 
 					LOGGER.debug("merging entities chunks from {} into {}", sourceData.getKey(), target);
 
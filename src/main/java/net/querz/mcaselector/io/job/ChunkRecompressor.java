@@ -0,0 +1,205 @@
+package net.querz.mcaselector.io.job;
+
+import net.querz.mcaselector.config.ConfigProvider;
+import net.querz.mcaselector.io.BatchResult;
+import net.querz.mcaselector.io.DataPointer;
+import net.querz.mcaselector.io.JobHandler;
+import net.querz.mcaselector.io.RegionDirectories;
+import net.querz.mcaselector.io.WorldDirectories;
+import net.querz.mcaselector.io.mca.CompressionType;
+import net.querz.mcaselector.io.mca.Region;
+import net.querz.mcaselector.point.Point2i;
+import net.querz.mcaselector.progress.Progress;
+import net.querz.mcaselector.progress.Timer;
+import net.querz.mcaselector.selection.Selection;
+import net.querz.mcaselector.text.Translation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public final class ChunkRecompressor {
+
+	private static final Logger LOGGER = LogManager.getLogger(ChunkRecompressor.class);
+
+	private ChunkRecompressor() {}
+
+	public static CompletableFuture<BatchResult> recompress(CompressionType compressionType, int compressionLevel, Selection selection, Progress progressChannel, boolean headless) {
+		WorldDirectories wd = ConfigProvider.WORLD.getWorldDirs();
+		RegionDirectories[] rd = wd.listRegions(selection);
+		if (rd == null || rd.length == 0) {
+			if (headless) {
+				progressChannel.done("no files");
+			} else {
+				progressChannel.done(Translation.DIALOG_PROGRESS_NO_FILES.toString());
+			}
+			return CompletableFuture.completedFuture(BatchResult.EMPTY);
+		}
+
+		JobHandler.clearQueues();
+
+		progressChannel.setMax(rd.length);
+		progressChannel.updateProgress(rd[0].getLocationAsFileName(), 0);
+
+		Statistics statistics = new Statistics(rd.length);
+
+		Consumer<Throwable> errorHandler = t -> {
+			statistics.regionDone(0, 0);
+			progressChannel.incrementProgress("error");
+		};
+
+		List<ProcessDataJob> jobs = new ArrayList<>();
+		for (RegionDirectories r : rd) {
+			MCARecompressProcessJob job = new MCARecompressProcessJob(r, compressionType, compressionLevel, selection, statistics, progressChannel);
+			job.errorHandler = errorHandler;
+			jobs.add(job);
+		}
+
+		return JobHandler.addJobs(jobs);
+	}
+
+	private static long fileSize(File file) {
+		return file != null && file.exists() ? file.length() : 0;
+	}
+
+	private static long fileSizes(RegionDirectories dirs) {
+		return fileSize(dirs.getRegion()) + fileSize(dirs.getPoi()) + fileSize(dirs.getEntities());
+	}
+
+	private static String formatMB(long bytes) {
+		return String.format("%.2fMB", bytes / 1_048_576D);
+	}
+
+	// collects the file sizes of all regions and logs the totals once the last region is done
+	private static class Statistics {
+
+		private final AtomicInteger remaining;
+		private final AtomicLong bytesBefore = new AtomicLong();
+		private final AtomicLong bytesAfter = new AtomicLong();
+		private final Timer timer = new Timer();
+
+		private Statistics(int regions) {
+			remaining = new AtomicInteger(regions);
+		}
+
+		private void regionDone(long before, long after) {
+			bytesBefore.addAndGet(before);
+			bytesAfter.addAndGet(after);
+			if (remaining.decrementAndGet() == 0) {
+				LOGGER.info("recompressed {} to {} in {}", formatMB(bytesBefore.get()), formatMB(bytesAfter.get()), timer);
+			}
+		}
+	}
+
+	public static class MCARecompressProcessJob extends ProcessDataJob {
+
+		private final Progress progressChannel;
+		private final CompressionType compressionType;
+		private final int compressionLevel;
+		private final Selection selection;
+		private final Statistics statistics;
+
+		private MCARecompressProcessJob(RegionDirectories dirs, CompressionType compressionType, int compressionLevel, Selection selection, Statistics statistics, Progress progressChannel) {
+			super(dirs, PRIORITY_LOW);
+			this.compressionType = compressionType;
+			this.compressionLevel = compressionLevel;
+			this.selection = selection;
+			this.statistics = statistics;
+			this.progressChannel = progressChannel;
+		}
+
+		@Override
+		public void read() {
+			if (selection == null || selection.isAnyChunkInRegionSelected(getRegionDirectories().getLocation())) {
+				readAll();
+			}
+		}
+
+		@Override
+		public boolean execute() {
+			Point2i location = getRegionDirectories().getLocation();
+			if (selection != null && !selection.isAnyChunkInRegionSelected(location)) {
+				LOGGER.debug("will not recompress {}", getRegionDirectories().getLocationAsFileName());
+				statistics.regionDone(0, 0);
+				progressChannel.incrementProgress(getRegionDirectories().getLocationAsFileName());
+				return true;
+			}
+
+			Timer t = new Timer();
+			long bytesBefore = fileSizes(getRegionDirectories());
+
+			DataPointer regionData = loadRegion();
+			DataPointer poiData = loadPoi();
+			DataPointer entitiesData = loadEntities();
+
+			if (regionData == null && poiData == null && entitiesData == null) {
+				LOGGER.warn("failed to load any data from {}", getRegionDirectories().getLocationAsFileName());
+				statistics.regionDone(0, 0);
+				progressChannel.incrementProgress(getRegionDirectories().getLocationAsFileName());
+				return true;
+			}
+
+			try {
+				Region region = Region.loadRegion(getRegionDirectories(), regionData, poiData, entitiesData);
+
+				int changed = region.setCompression(compressionType, compressionLevel, selection == null ? null : selection.getSelectedChunks(location));
+				if (changed == 0) {
+					LOGGER.debug("all chunks in {} already use the requested compression", getRegionDirectories().getLocationAsFileName());
+					statistics.regionDone(bytesBefore, bytesBefore);
+					progressChannel.incrementProgress(getRegionDirectories().getLocationAsFileName());
+					return true;
+				}
+
+				MCARecompressSaveJob job = new MCARecompressSaveJob(getRegionDirectories(), region, bytesBefore, t, statistics, progressChannel);
+				job.errorHandler = errorHandler;
+				JobHandler.executeSaveData(job);
+				return false;
+			} catch (Exception ex) {
+				statistics.regionDone(bytesBefore, bytesBefore);
+				progressChannel.incrementProgress(getRegionDirectories().getLocationAsFileName());
+				LOGGER.warn("error recompressing chunks in {}", getRegionDirectories().getLocationAsFileName(), ex);
+			}
+			return true;
+		}
+	}
+
+	public static class MCARecompressSaveJob extends SaveDataJob<Region> {
+
+		private final Progress progressChannel;
+		private final long bytesBefore;
+		private final Timer timer;
+		private final Statistics statistics;
+
+		private MCARecompressSaveJob(RegionDirectories file, Region region, long bytesBefore, Timer timer, Statistics statistics, Progress progressChannel) {
+			super(file, region);
+			this.bytesBefore = bytesBefore;
+			this.timer = timer;
+			this.statistics = statistics;
+			this.progressChannel = progressChannel;
+		}
+
+		@Override
+		public void execute() {
+			try {
+				getData().saveWithTempFiles();
+			} catch (Exception ex) {
+				LOGGER.warn("failed to save recompressed chunks for {}", getRegionDirectories().getLocationAsFileName(), ex);
+			}
+			long bytesAfter = fileSizes(getRegionDirectories());
+			double seconds = timer.getNano() / 1_000_000_000D;
+			String result = String.format("%s: %s -> %s (%.2fMB/s)",
+					getRegionDirectories().getLocationAsFileName(),
+					formatMB(bytesBefore),
+					formatMB(bytesAfter),
+					seconds == 0 ? 0 : bytesBefore / 1_048_576D / seconds);
+			LOGGER.info("recompressed {} in {}", result, timer);
+			statistics.regionDone(bytesBefore, bytesAfter);
+			progressChannel.incrementProgress(result);
+		}
+	}
+}
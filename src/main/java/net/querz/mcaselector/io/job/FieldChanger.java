@@ -2,6 +2,8 @@ package net.querz.mcaselector.io.job;
 
 import net.querz.mcaselector.changer.Field;
 import net.querz.mcaselector.config.ConfigProvider;
+import net.querz.mcaselector.io.BatchResult;
+import net.querz.mcaselector.io.DataPointer;
 import net.querz.mcaselector.io.JobHandler;
 import net.querz.mcaselector.io.RegionDirectories;
 import net.querz.mcaselector.io.WorldDirectories;
@@ -13,7 +15,9 @@ import net.querz.mcaselector.selection.Selection;
 import net.querz.mcaselector.text.Translation;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public final class FieldChanger {
@@ -22,7 +26,7 @@ public final class FieldChanger {
 
 	private FieldChanger() {}
 
-	public static void changeNBTFields(List<Field<?>> fields, boolean force, Selection selection, Progress progressChannel, boolean headless) {
+	public static CompletableFuture<BatchResult> changeNBTFields(List<Field<?>> fields, boolean force, Selection selection, Progress progressChannel, boolean headless) {
 		WorldDirectories wd = ConfigProvider.WORLD.getWorldDirs();
 		RegionDirectories[] rd = wd.listRegions(selection);
 		if (rd == null || rd.length == 0) {
@@ -31,7 +35,7 @@ public final class FieldChanger {
 			} else {
 				progressChannel.done(Translation.DIALOG_PROGRESS_NO_FILES.toString());
 			}
-			return;
+			return CompletableFuture.completedFuture(BatchResult.EMPTY);
 		}
 
 		JobHandler.clearQueues();
@@ -41,11 +45,14 @@ public final class FieldChanger {
 
 		Consumer<Throwable> errorHandler = t -> progressChannel.incrementProgress("error");
 
+		List<ProcessDataJob> jobs = new ArrayList<>();
 		for (RegionDirectories r : rd) {
 			MCAFieldChangeProcessJob job = new MCAFieldChangeProcessJob(r, fields, force, selection, progressChannel);
 			job.errorHandler = errorHandler;
-			JobHandler.addJob(job);
+			jobs.add(job);
 		}
+
+		return JobHandler.addJobs(jobs);
 	}
 
 	public static class MCAFieldChangeProcessJob extends ProcessDataJob {
@@ -63,6 +70,13 @@ public final class FieldChanger {
 			this.progressChannel = progressChannel;
 		}
 
+		@Override
+		public void read() {
+			if (selection == null || selection.isAnyChunkInRegionSelected(getRegionDirectories().getLocation())) {
+				readAll();
+			}
+		}
+
 		@Override
 		public boolean execute() {
 			if (selection != null) {
@@ -74,9 +88,9 @@ public final class FieldChanger {
 				}
 			}
 
-			byte[] regionData = loadRegion();
-			byte[] poiData = loadPoi();
-			byte[] entitiesData = loadEntities();
+			DataPointer regionData = loadRegion();
+			DataPointer poiData = loadPoi();
+			DataPointer entitiesData = loadEntities();
 
 			if (regionData == null && poiData == null && entitiesData == null) {
 				LOGGER.warn("failed to load any data from {}", getRegionDirectories().getLocationAsFileName());
@@ -115,7 +129,8 @@ public final class FieldChanger {
 		public void execute() {
 			Timer t = new Timer();
 			try {
-				getData().saveWithTempFiles();
+				// only a few chunks are changed when applying changes to a selection
+				getData().saveChanges();
 			} catch (Exception ex) {
 				LOGGER.warn("failed to save changed fields for {}", getRegionDirectories().getLocationAsFileName(), ex);
 			}
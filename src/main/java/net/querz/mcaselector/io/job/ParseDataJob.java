@@ -1,14 +1,17 @@
 package net.querz.mcaselector.io.job;
 
-import net.querz.mcaselector.io.ByteArrayPointer;
+import net.querz.mcaselector.io.DataPointer;
 import net.querz.mcaselector.io.RegionDirectories;
 import net.querz.mcaselector.io.mca.ChunkData;
+import net.querz.mcaselector.io.mca.ChunkHeaderData;
 import net.querz.mcaselector.io.mca.EntitiesMCAFile;
 import net.querz.mcaselector.io.mca.PoiMCAFile;
+import net.querz.mcaselector.io.mca.Region;
 import net.querz.mcaselector.io.mca.RegionMCAFile;
 import net.querz.mcaselector.point.Point2i;
 import net.querz.mcaselector.progress.Timer;
 import net.querz.mcaselector.tile.Tile;
+import net.querz.mcaselector.overlay.HeaderParser;
 import net.querz.mcaselector.overlay.Overlay;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -85,17 +88,20 @@ public class ParseDataJob extends ProcessDataJob {
 	public boolean execute() {
 		Timer t = new Timer();
 
+		if (parser instanceof HeaderParser headerParser) {
+			return parseHeaders(headerParser, t);
+		}
+
 		RegionMCAFile regionMCAFile = null;
 		if (region != null) {
 			regionMCAFile = region;
 		} else if (getRegionDirectories().getRegion() != null && getRegionDirectories().getRegion().exists() && getRegionDirectories().getRegion().length() > 0) {
-			byte[] regionData = loadRegion();
+			DataPointer regionData = loadRegion();
 			regionMCAFile = new RegionMCAFile(getRegionDirectories().getRegion());
 			if (regionData != null) {
 				// load EntitiesMCAFile
-				ByteArrayPointer ptr = new ByteArrayPointer(regionData);
 				try {
-					regionMCAFile.load(ptr);
+					regionMCAFile.load(regionData);
 				} catch (IOException ex) {
 					LOGGER.warn("failed to read mca file header from {}", getRegionDirectories().getRegion());
 				}
@@ -106,13 +112,12 @@ public class ParseDataJob extends ProcessDataJob {
 		if (entities != null) {
 			entitiesMCAFile = entities;
 		} else if (getRegionDirectories().getEntities() != null && getRegionDirectories().getEntities().exists() && getRegionDirectories().getEntities().length() > 0) {
-			byte[] entitiesData = loadEntities();
+			DataPointer entitiesData = loadEntities();
 			entitiesMCAFile = new EntitiesMCAFile(getRegionDirectories().getEntities());
 			if (entitiesData != null) {
 				// load EntitiesMCAFile
-				ByteArrayPointer ptr = new ByteArrayPointer(entitiesData);
 				try {
-					entitiesMCAFile.load(ptr);
+					entitiesMCAFile.load(entitiesData);
 				} catch (IOException ex) {
 					LOGGER.warn("failed to read mca file header from {}", getRegionDirectories().getEntities());
 				}
@@ -123,13 +128,12 @@ public class ParseDataJob extends ProcessDataJob {
 		if (poi != null) {
 			poiMCAFile = poi;
 		} else if (getRegionDirectories().getPoi() != null && getRegionDirectories().getPoi().exists() && getRegionDirectories().getPoi().length() > 0) {
-			byte[] poiData = loadPoi();
+			DataPointer poiData = loadPoi();
 			poiMCAFile = new PoiMCAFile(getRegionDirectories().getPoi());
 			if (poiData != null) {
 				// load PoiMCAFile
-				ByteArrayPointer ptr = new ByteArrayPointer(poiData);
 				try {
-					poiMCAFile.load(ptr);
+					poiMCAFile.load(poiData);
 				} catch (IOException ex) {
 					LOGGER.warn("failed to read mca file header from {}", getRegionDirectories().getPoi());
 				}
@@ -164,6 +168,38 @@ public class ParseDataJob extends ProcessDataJob {
 		return true;
 	}
 
+	// overlays that only need the mca headers don't load any chunk data
+	private boolean parseHeaders(HeaderParser headerParser, Timer t) {
+		Region headers = null;
+		try {
+			headers = Region.loadRegionHeaders(getRegionDirectories(), loadRegionHeader(), loadPoiHeader(), loadEntitiesHeader());
+		} catch (IOException ex) {
+			LOGGER.warn("failed to read mca file headers for region {}", getRegionDirectories().getLocation(), ex);
+		}
+
+		if (headers == null || headers.getRegion() == null && headers.getPoi() == null && headers.getEntities() == null) {
+			dataCallback.accept(null, world);
+			LOGGER.warn("no headers to parse for region {}", getRegionDirectories().getLocation());
+			setLoading(tile, false);
+			return true;
+		}
+
+		int[] data = new int[1024];
+		for (int i = 0; i < 1024; i++) {
+			ChunkHeaderData headerData = new ChunkHeaderData(
+					headers.getRegion() == null ? null : headers.getRegion().getChunkHeader(i),
+					headers.getPoi() == null ? null : headers.getPoi().getChunkHeader(i),
+					headers.getEntities() == null ? null : headers.getEntities().getChunkHeader(i));
+			data[i] = headerParser.parseHeader(headerData);
+		}
+
+		dataCallback.accept(data, world);
+		setLoading(tile, false);
+
+		LOGGER.debug("took {} to parse headers for region {}", t, getRegionDirectories().getLocation());
+		return true;
+	}
+
 	@Override
 	public void cancel() {
 		setLoading(tile, false);
@@ -1,8 +1,15 @@
 package net.querz.mcaselector.io.job;
 
+import net.querz.mcaselector.config.ConfigProvider;
+import net.querz.mcaselector.io.ByteArrayPointer;
+import net.querz.mcaselector.io.DataPointer;
 import net.querz.mcaselector.io.FileHelper;
 import net.querz.mcaselector.io.Job;
+import net.querz.mcaselector.io.MappedFilePointer;
 import net.querz.mcaselector.io.RegionDirectories;
+import net.querz.mcaselector.jfr.FileReadEvent;
+import net.querz.mcaselector.jfr.ProcessJobEvent;
+import net.querz.mcaselector.metrics.Metrics;
 import net.querz.mcaselector.progress.Timer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -11,6 +18,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Consumer;
 
 public abstract class ProcessDataJob extends Job {
@@ -19,20 +28,26 @@ public abstract class ProcessDataJob extends Job {
 
 	protected Consumer<Throwable> errorHandler;
 
+	// data that has been read by the read stage before this job is executed
+	private final Map<File, DataPointer> readAhead = new HashMap<>();
+
+	// number of bytes read or mapped for this job, reported by ProcessJobEvent
+	private long bytesRead;
+
 	public ProcessDataJob(RegionDirectories dirs, int priority) {
 		super(dirs, priority);
 	}
 
-	public byte[] loadPoi() {
-		return load(getRegionDirectories().getPoi());
+	public DataPointer loadPoi() {
+		return loadData(getRegionDirectories().getPoi());
 	}
 
-	public byte[] loadEntities() {
-		return load(getRegionDirectories().getEntities());
+	public DataPointer loadEntities() {
+		return loadData(getRegionDirectories().getEntities());
 	}
 
-	public byte[] loadRegion() {
-		return load(getRegionDirectories().getRegion());
+	public DataPointer loadRegion() {
+		return loadData(getRegionDirectories().getRegion());
 	}
 
 	public byte[] loadPoiHeader() {
@@ -47,6 +62,57 @@ public abstract class ProcessDataJob extends Job {
 		return load(getRegionDirectories().getRegion(), FileHelper.HEADER_SIZE);
 	}
 
+	// called by the read stage of the JobHandler before this job is executed. jobs that know which files they
+	// will need can read them here, so reading the files of the next regions overlaps with processing this one.
+	public void read() {}
+
+	// reads the region, poi and entities files ahead of execute()
+	protected void readAll() {
+		readAhead(getRegionDirectories().getRegion());
+		readAhead(getRegionDirectories().getPoi());
+		readAhead(getRegionDirectories().getEntities());
+	}
+
+	protected void readAhead(File file) {
+		if (file == null || readAhead.containsKey(file)) {
+			return;
+		}
+		DataPointer data = loadData(file);
+		if (data != null) {
+			readAhead.put(file, data);
+		}
+	}
+
+	// maps the file into memory if enabled, falls back to reading the entire file onto the heap
+	protected DataPointer loadData(File file) {
+		if (file == null) {
+			return null;
+		}
+		DataPointer readData = readAhead.remove(file);
+		if (readData != null) {
+			return readData;
+		}
+		if (!file.exists() || file.length() <= 0) {
+			return null;
+		}
+		if (ConfigProvider.GLOBAL.getMemoryMappedIO()) {
+			Timer t = new Timer();
+			FileReadEvent event = new FileReadEvent();
+			event.begin();
+			MappedFilePointer ptr = MappedFilePointer.map(file);
+			if (ptr != null) {
+				long length = file.length();
+				bytesRead += length;
+				Metrics.BYTES_READ.add(length);
+				event.commit(file, length, true);
+				LOGGER.debug("mapped {} into memory in {}", file.getAbsolutePath(), t);
+				return ptr;
+			}
+		}
+		byte[] data = load(file);
+		return data == null ? null : new ByteArrayPointer(data);
+	}
+
 	protected byte[] load(File file) {
 		if (file == null) {
 			return null;
@@ -63,6 +129,8 @@ public abstract class ProcessDataJob extends Job {
 			return null;
 		}
 		Timer t = new Timer();
+		FileReadEvent event = new FileReadEvent();
+		event.begin();
 		int read;
 		byte[] data = new byte[length];
 		try (InputStream is = Files.newInputStream(file.toPath(), StandardOpenOption.READ)) {
@@ -71,21 +139,29 @@ public abstract class ProcessDataJob extends Job {
 			LOGGER.warn("failed to read data from {}", file, ex);
 			return null;
 		}
+		bytesRead += read;
+		Metrics.BYTES_READ.add(read);
+		event.commit(file, read, false);
 		LOGGER.debug("read {} bytes from {} in {}", read, file.getAbsolutePath(), t);
 		return data;
 	}
 
 	@Override
 	public void run() {
+		ProcessJobEvent event = new ProcessJobEvent();
+		event.begin();
 		try {
 			if (execute()) {
 				done();
 			}
 		} catch (Throwable t) {
 			LOGGER.error("unhandled exception in ProcessDataJob", t);
+			failed(t);
 			if (errorHandler != null) {
 				errorHandler.accept(t);
 			}
+		} finally {
+			event.commit(getClass().getSimpleName(), getRegionDirectories().getLocation(), bytesRead);
 		}
 	}
 
@@ -0,0 +1,142 @@
+package net.querz.mcaselector.io.job;
+
+import net.querz.mcaselector.config.ConfigProvider;
+import net.querz.mcaselector.io.BatchResult;
+import net.querz.mcaselector.io.JobHandler;
+import net.querz.mcaselector.io.RegionDirectories;
+import net.querz.mcaselector.io.WorldDirectories;
+import net.querz.mcaselector.io.mca.MCAFile;
+import net.querz.mcaselector.io.mca.Region;
+import net.querz.mcaselector.progress.Progress;
+import net.querz.mcaselector.progress.Timer;
+import net.querz.mcaselector.selection.Selection;
+import net.querz.mcaselector.text.Translation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+// reclaims sectors that are not referenced by the header anymore, e.g. after chunks were deleted
+// with header only deletion enabled.
+public final class RegionCompactor {
+
+	private static final Logger LOGGER = LogManager.getLogger(RegionCompactor.class);
+
+	private RegionCompactor() {}
+
+	public static CompletableFuture<BatchResult> compact(Selection selection, Progress progressChannel, boolean headless) {
+		WorldDirectories wd = ConfigProvider.WORLD.getWorldDirs();
+		RegionDirectories[] rd = wd.listRegions(selection);
+		if (rd == null || rd.length == 0) {
+			if (headless) {
+				progressChannel.done("no files");
+			} else {
+				progressChannel.done(Translation.DIALOG_PROGRESS_NO_FILES.toString());
+			}
+			return CompletableFuture.completedFuture(BatchResult.EMPTY);
+		}
+
+		JobHandler.clearQueues();
+
+		progressChannel.setMax(rd.length);
+		progressChannel.updateProgress(rd[0].getLocationAsFileName(), 0);
+
+		Consumer<Throwable> errorHandler = t -> progressChannel.incrementProgress("error");
+
+		List<ProcessDataJob> jobs = new ArrayList<>();
+		for (RegionDirectories r : rd) {
+			MCACompactProcessJob job = new MCACompactProcessJob(r, progressChannel);
+			job.errorHandler = errorHandler;
+			jobs.add(job);
+		}
+
+		return JobHandler.addJobs(jobs);
+	}
+
+	// returns true if the file contains more sectors than the header references
+	private static boolean hasDeadSectors(MCAFile<?> mcaFile) {
+		if (mcaFile == null) {
+			return false;
+		}
+		long fileSectors = (mcaFile.getFile().length() + 4095) / 4096;
+		return fileSectors > mcaFile.getUsedSectors();
+	}
+
+	private static class MCACompactProcessJob extends ProcessDataJob {
+
+		private final Progress progressChannel;
+
+		private MCACompactProcessJob(RegionDirectories dirs, Progress progressChannel) {
+			super(dirs, PRIORITY_LOW);
+			this.progressChannel = progressChannel;
+		}
+
+		@Override
+		public boolean execute() {
+			byte[] regionData = loadRegionHeader();
+			byte[] poiData = loadPoiHeader();
+			byte[] entitiesData = loadEntitiesHeader();
+
+			if (regionData == null && poiData == null && entitiesData == null) {
+				LOGGER.warn("failed to load any data from {}", getRegionDirectories().getLocationAsFileName());
+				progressChannel.incrementProgress(getRegionDirectories().getLocationAsFileName());
+				return true;
+			}
+
+			try {
+				// only headers are needed to find dead sectors
+				Region region = Region.loadRegionHeaders(getRegionDirectories(), regionData, poiData, entitiesData);
+
+				// only defragment files that actually contain dead sectors
+				if (!hasDeadSectors(region.getRegion())) {
+					region.setRegion(null);
+				}
+				if (!hasDeadSectors(region.getPoi())) {
+					region.setPoi(null);
+				}
+				if (!hasDeadSectors(region.getEntities())) {
+					region.setEntities(null);
+				}
+
+				if (region.getRegion() == null && region.getPoi() == null && region.getEntities() == null) {
+					LOGGER.debug("no dead sectors in {}, not compacting", getRegionDirectories().getLocationAsFileName());
+					progressChannel.incrementProgress(getRegionDirectories().getLocationAsFileName());
+					return true;
+				}
+
+				MCACompactSaveJob job = new MCACompactSaveJob(getRegionDirectories(), region, progressChannel);
+				job.errorHandler = errorHandler;
+				JobHandler.executeSaveData(job);
+				return false;
+			} catch (Exception ex) {
+				progressChannel.incrementProgress(getRegionDirectories().getLocationAsFileName());
+				LOGGER.warn("error reading headers of {}", getRegionDirectories().getLocationAsFileName(), ex);
+			}
+			return true;
+		}
+	}
+
+	private static class MCACompactSaveJob extends SaveDataJob<Region> {
+
+		private final Progress progressChannel;
+
+		private MCACompactSaveJob(RegionDirectories dirs, Region region, Progress progressChannel) {
+			super(dirs, region);
+			this.progressChannel = progressChannel;
+		}
+
+		@Override
+		public void execute() {
+			Timer t = new Timer();
+			try {
+				getData().deFragment();
+			} catch (Exception ex) {
+				LOGGER.warn("failed to compact {}", getRegionDirectories().getLocationAsFileName(), ex);
+			}
+			progressChannel.incrementProgress(getRegionDirectories().getLocationAsFileName());
+			LOGGER.debug("took {} to compact {}", t, getRegionDirectories().getLocationAsFileName());
+		}
+	}
+}
@@ -7,6 +7,7 @@ import net.querz.mcaselector.config.ConfigProvider;
 import net.querz.mcaselector.config.WorldConfig;
 import net.querz.mcaselector.io.*;
 import net.querz.mcaselector.io.mca.RegionMCAFile;
+import net.querz.mcaselector.metrics.Metrics;
 import net.querz.mcaselector.tile.Tile;
 import net.querz.mcaselector.tile.TileImage;
 import net.querz.mcaselector.point.Point2i;
@@ -19,6 +20,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -43,6 +45,15 @@ public final class RegionImageGenerator {
 		JobHandler.addJob(new MCAImageProcessJob(tile, new UniqueID(), callback, zoomLevel, progressChannel, canSkipSaving, prioritySupplier));
 	}
 
+	// generates and caches the images of all tiles, the returned future completes when all images have been saved
+	public static CompletableFuture<BatchResult> generateAll(Collection<Tile> tiles, Integer zoomLevel, Progress progressChannel) {
+		List<MCAImageProcessJob> jobs = new ArrayList<>(tiles.size());
+		for (Tile tile : tiles) {
+			jobs.add(new MCAImageProcessJob(tile, new UniqueID(), (i, u) -> {}, zoomLevel, progressChannel, false, null));
+		}
+		return JobHandler.addJobs(jobs);
+	}
+
 	public static RegionMCAFile getCachedRegionMCAFile(Point2i region) {
 		synchronized (cacheLock) {
 			return cachedMCAFiles.get(region);
@@ -150,12 +161,22 @@ public final class RegionImageGenerator {
 			}
 		}
 
+		@Override
+		public void read() {
+			if (getCachedRegionMCAFile(tile.getLocation()) == null) {
+				readAhead(tile.getMCAFile());
+			}
+		}
+
 		@Override
 		public boolean execute() {
 			RegionMCAFile cachedRegion = getCachedRegionMCAFile(tile.getLocation());
-			byte[] data = null;
+			DataPointer data = null;
 			if (cachedRegion == null) {
-				data = load(tile.getMCAFile());
+				Metrics.REGION_CACHE.miss();
+				data = loadData(tile.getMCAFile());
+			} else {
+				Metrics.REGION_CACHE.hit();
 			}
 			if (data == null && cachedRegion == null) {
 				callback.accept(null, uniqueID);
@@ -168,13 +189,12 @@ public final class RegionImageGenerator {
 			LOGGER.debug("generating image for {}", tile.getMCAFile().getAbsolutePath());
 
 			File file = tile.getMCAFile();
-			ByteArrayPointer ptr = new ByteArrayPointer(data);
 			boolean isCached = false;
 			if (cachedRegion == null) {
 				cachedRegion = new RegionMCAFile(file);
 				try {
 					Timer t = new Timer();
-					cachedRegion.load(ptr);
+					cachedRegion.load(data);
 					LOGGER.debug("took {} to read mca file {}", t, cachedRegion.getFile().getName());
 				} catch (IOException ex) {
 					LOGGER.warn("failed to load mca file {}", cachedRegion.getFile().getName());
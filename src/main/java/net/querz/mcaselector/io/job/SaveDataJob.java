@@ -2,6 +2,7 @@ package net.querz.mcaselector.io.job;
 
 import net.querz.mcaselector.io.Job;
 import net.querz.mcaselector.io.RegionDirectories;
+import net.querz.mcaselector.jfr.SaveJobEvent;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import java.util.function.Consumer;
@@ -25,19 +26,25 @@ public abstract class SaveDataJob<T> extends Job {
 
 	@Override
 	public void run() {
+		SaveJobEvent event = new SaveJobEvent();
+		event.begin();
 		try {
 			execute();
 		} catch (Throwable t) {
 			LOGGER.error("unhandled exception in SaveDataJob", t);
+			failed(t);
 			if (errorHandler != null) {
 				errorHandler.accept(t);
 			}
+		} finally {
+			event.commit(getClass().getSimpleName(), getRegionDirectories().getLocation());
 		}
 	}
 
 	public abstract void execute();
 
-	// can be overwritten to indicate that this job can be skipped in favor for load and process jobs
+	// can be overwritten to indicate that this job can be skipped in favor for load and process jobs.
+	// skipped jobs are cancelled instead of being executed.
 	public boolean canSkip() {
 		return false;
 	}
@@ -2,6 +2,7 @@ package net.querz.mcaselector.io.job;
 
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import net.querz.mcaselector.config.ConfigProvider;
+import net.querz.mcaselector.io.BatchResult;
 import net.querz.mcaselector.io.FileHelper;
 import net.querz.mcaselector.io.JobHandler;
 import net.querz.mcaselector.io.RegionDirectories;
@@ -13,6 +14,9 @@ import net.querz.mcaselector.selection.ChunkSet;
 import net.querz.mcaselector.selection.Selection;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public final class SelectionDeleter {
@@ -21,10 +25,10 @@ public final class SelectionDeleter {
 
 	private SelectionDeleter() {}
 
-	public static void deleteSelection(Selection selection, Progress progressChannel) {
+	public static CompletableFuture<BatchResult> deleteSelection(Selection selection, Progress progressChannel) {
 		if (selection.isEmpty()) {
 			progressChannel.done("no selection");
-			return;
+			return CompletableFuture.completedFuture(BatchResult.EMPTY);
 		}
 
 		JobHandler.clearQueues();
@@ -41,11 +45,14 @@ public final class SelectionDeleter {
 
 		Consumer<Throwable> errorHandler = t -> progressChannel.incrementProgress("error");
 
+		List<ProcessDataJob> jobs = new ArrayList<>();
 		for (Long2ObjectMap.Entry<ChunkSet> entry : trueSelection) {
 			MCADeleteSelectionProcessJob job = new MCADeleteSelectionProcessJob(FileHelper.createRegionDirectories(new Point2i(entry.getLongKey())), entry.getValue(), progressChannel);
 			job.errorHandler = errorHandler;
-			JobHandler.addJob(job);
+			jobs.add(job);
 		}
+
+		return JobHandler.addJobs(jobs);
 	}
 
 	private static class MCADeleteSelectionProcessJob extends ProcessDataJob {
@@ -131,7 +138,12 @@ public final class SelectionDeleter {
 		public void execute() {
 			Timer t = new Timer();
 			try {
-				getData().deFragment();
+				if (ConfigProvider.GLOBAL.getHeaderOnlyDelete()) {
+					// dead sectors are reclaimed later by RegionCompactor
+					getData().saveHeaders();
+				} else {
+					getData().deFragment();
+				}
 			} catch (Exception ex) {
 				LOGGER.warn("failed to delete selected chunks from {}", getRegionDirectories().getLocationAsFileName(), ex);
 			}
@@ -1,6 +1,7 @@
 package net.querz.mcaselector.io.job;
 
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import net.querz.mcaselector.io.BatchResult;
 import net.querz.mcaselector.io.FileHelper;
 import net.querz.mcaselector.io.JobHandler;
 import net.querz.mcaselector.io.RegionDirectories;
@@ -15,6 +16,9 @@ import org.apache.logging.log4j.Logger;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public final class SelectionExporter {
@@ -23,10 +27,10 @@ public final class SelectionExporter {
 
 	private SelectionExporter() {}
 
-	public static void exportSelection(Selection selection, WorldDirectories destination, Progress progressChannel) {
+	public static CompletableFuture<BatchResult> exportSelection(Selection selection, WorldDirectories destination, Progress progressChannel) {
 		if (selection.isEmpty()) {
 			progressChannel.done("no selection");
-			return;
+			return CompletableFuture.completedFuture(BatchResult.EMPTY);
 		}
 
 		JobHandler.clearQueues();
@@ -38,6 +42,7 @@ public final class SelectionExporter {
 
 		Consumer<Throwable> errorHandler = t -> progressChannel.incrementProgress("error");
 
+		List<ProcessDataJob> jobs = new ArrayList<>();
 		for (Long2ObjectMap.Entry<ChunkSet> entry : trueSelection) {
 			MCADeleteSelectionProcessJob job = new MCADeleteSelectionProcessJob(
 					FileHelper.createRegionDirectories(new Point2i(entry.getLongKey())),
@@ -45,8 +50,10 @@ public final class SelectionExporter {
 					destination,
 					progressChannel);
 			job.errorHandler = errorHandler;
-			JobHandler.addJob(job);
+			jobs.add(job);
 		}
+
+		return JobHandler.addJobs(jobs);
 	}
 
 	private static class MCADeleteSelectionProcessJob extends ProcessDataJob {
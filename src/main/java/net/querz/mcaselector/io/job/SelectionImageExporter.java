@@ -6,7 +6,7 @@ import javafx.scene.image.Image;
 import javafx.scene.image.PixelFormat;
 import javafx.scene.image.PixelReader;
 import net.querz.mcaselector.config.ConfigProvider;
-import net.querz.mcaselector.io.ByteArrayPointer;
+import net.querz.mcaselector.io.DataPointer;
 import net.querz.mcaselector.io.FileHelper;
 import net.querz.mcaselector.io.ImageHelper;
 import net.querz.mcaselector.io.JobHandler;
@@ -86,7 +86,7 @@ public final class SelectionImageExporter {
 			} else if (regionFile.exists()) {
 				// generate image from region file
 
-				byte[] data = load(regionFile);
+				DataPointer data = loadData(regionFile);
 				if (data == null) {
 					progressChannel.incrementProgress(regionFile.getName());
 					return true;
@@ -94,7 +94,7 @@ public final class SelectionImageExporter {
 
 				mcaFile = new RegionMCAFile(regionFile);
 				try {
-					mcaFile.load(new ByteArrayPointer(data));
+					mcaFile.load(data);
 				} catch (IOException ex) {
 					progressChannel.incrementProgress(regionFile.getName());
 					return true;
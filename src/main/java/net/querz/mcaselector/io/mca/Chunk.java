@@ -3,7 +3,10 @@ package net.querz.mcaselector.io.mca;
 import net.jpountz.lz4.LZ4BlockInputStream;
 import net.jpountz.lz4.LZ4BlockOutputStream;
 import net.querz.io.ExposedByteArrayOutputStream;
-import net.querz.mcaselector.io.ByteArrayPointer;
+import net.querz.mcaselector.io.DataPointer;
+import net.querz.mcaselector.jfr.ChunkDecodeEvent;
+import net.querz.mcaselector.jfr.ChunkEncodeEvent;
+import net.querz.mcaselector.metrics.Metrics;
 import net.querz.mcaselector.point.Point2i;
 import net.querz.mcaselector.point.Point3i;
 import net.querz.mcaselector.range.Range;
@@ -15,10 +18,9 @@ import net.querz.nbt.CompoundTag;
 import java.io.*;
 import java.util.List;
 import java.util.function.Function;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
-import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 public abstract class Chunk {
@@ -26,31 +28,59 @@ public abstract class Chunk {
 	protected int timestamp;
 	protected CompoundTag data;
 	protected CompressionType compressionType;
+	protected int compressionLevel = Deflater.DEFAULT_COMPRESSION; // only used by GZIP and ZLIB
 	protected final Point2i absoluteLocation;
+	protected boolean partial;
+
+	// the compressed data as it was loaded, only valid as long as the chunk isn't dirty
+	protected byte[] rawData;
+	protected boolean dirty = true;
 
 	public Chunk(Point2i absoluteLocation) {
 		this.absoluteLocation = absoluteLocation;
 	}
 
-	public void load(ByteArrayPointer ptr) throws IOException {
+	public void load(DataPointer ptr) throws IOException {
+		load(ptr, null);
+	}
+
+	// if a partial reader is provided, only the tags requested by it are loaded and the chunk can't be saved
+	public void load(DataPointer ptr, PartialNBTReader partialReader) throws IOException {
+		loadRaw(ptr);
+		decode(partialReader);
+	}
+
+	// only reads the compressed data, so the pointer can be released before the data is decoded with decode()
+	public void loadRaw(DataPointer ptr) throws IOException {
 		int length = ptr.readInt();
 		compressionType = CompressionType.fromByte(ptr.readByte());
 
-		DataInputStream nbtIn = switch (compressionType) {
-			case GZIP -> new DataInputStream(new BufferedInputStream(new GZIPInputStream(ptr, length)));
-			case ZLIB -> new DataInputStream(new BufferedInputStream(new InflaterInputStream(ptr, new Inflater(), length)));
-			case LZ4 -> new DataInputStream(new BufferedInputStream(new LZ4BlockInputStream(ptr)));
-			case NONE, UNCOMPRESSED -> new DataInputStream(ptr);
-			case GZIP_EXT -> new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(getMCCFile()))));
-			case ZLIB_EXT -> new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(getMCCFile()))));
-			case LZ4_EXT -> new DataInputStream(new BufferedInputStream(new LZ4BlockInputStream(new FileInputStream(getMCCFile()))));
-			case NONE_EXT, UNCOMPRESSED_EXT -> new DataInputStream(new BufferedInputStream(new FileInputStream(getMCCFile())));
-		};
+		if (compressionType.isExternal()) {
+			rawData = null;
+		} else {
+			rawData = new byte[checkLength(length) - 1];
+			if (ptr.readNBytes(rawData, 0, rawData.length) != rawData.length) {
+				throw new EOFException("unexpected end of chunk data at " + absoluteLocation);
+			}
+		}
+		dirty = false;
+	}
+
+	public void decode(PartialNBTReader partialReader) throws IOException {
+		ChunkDecodeEvent event = new ChunkDecodeEvent();
+		event.begin();
+		DataInputStream nbtIn = compressionType.isExternal() ? openMCCFile() : openRawData();
 
-		Tag tag = new NBTReader().read(nbtIn);
+		Tag tag;
+		try (nbtIn) {
+			tag = partialReader == null ? new NBTReader().read(nbtIn) : partialReader.read(nbtIn);
+		}
+		event.commit(absoluteLocation, compressionType.name(), rawData == null ? 0 : rawData.length, partialReader != null);
+		Metrics.CHUNKS_DECODED.increment();
 
 		if (tag instanceof CompoundTag) {
 			data = (CompoundTag) tag;
+			partial = partialReader != null;
 		} else {
 			throw new IOException("unexpected chunk data tag type " + tag.getType() + ", expected " + Tag.Type.COMPOUND);
 		}
@@ -60,18 +90,22 @@ public abstract class Chunk {
 		int length = raf.readInt();
 		compressionType = CompressionType.fromByte(raf.readByte());
 
-		DataInputStream nbtIn = switch (compressionType) {
-			case GZIP -> new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(raf.getFD()))));
-			case ZLIB -> new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(raf.getFD()))));
-			case LZ4 -> new DataInputStream(new BufferedInputStream(new LZ4BlockInputStream(new FileInputStream(raf.getFD()))));
-			case NONE, UNCOMPRESSED -> new DataInputStream(new BufferedInputStream(new FileInputStream(raf.getFD()), length - 1));
-			case GZIP_EXT -> new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(getMCCFile()))));
-			case ZLIB_EXT -> new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(getMCCFile()))));
-			case LZ4_EXT -> new DataInputStream(new BufferedInputStream(new LZ4BlockInputStream(new FileInputStream(getMCCFile()))));
-			case NONE_EXT, UNCOMPRESSED_EXT -> new DataInputStream(new BufferedInputStream(new FileInputStream(getMCCFile())));
-		};
+		DataInputStream nbtIn;
+		if (compressionType.isExternal()) {
+			rawData = null;
+			nbtIn = openMCCFile();
+		} else {
+			rawData = new byte[checkLength(length) - 1];
+			raf.readFully(rawData);
+			nbtIn = openRawData();
+		}
+		dirty = false;
 
-		Tag tag = new NBTReader().read(nbtIn);
+		Tag tag;
+		try (nbtIn) {
+			tag = new NBTReader().read(nbtIn);
+		}
+		Metrics.CHUNKS_DECODED.increment();
 
 		if (tag instanceof CompoundTag) {
 			data = (CompoundTag) tag;
@@ -80,14 +114,76 @@ public abstract class Chunk {
 		}
 	}
 
+	private int checkLength(int length) throws IOException {
+		// chunks larger than 1 MiB are stored in an mcc file
+		if (length < 1 || length > 1048577) {
+			throw new IOException("invalid chunk data length " + length + " for chunk at " + absoluteLocation);
+		}
+		return length;
+	}
+
+	private DataInputStream openRawData() throws IOException {
+		ByteArrayInputStream in = new ByteArrayInputStream(rawData);
+		return switch (compressionType) {
+			case GZIP -> new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+			case ZLIB -> new DataInputStream(new BufferedInputStream(new InflaterInputStream(in, ChunkCodecs.inflater())));
+			case LZ4 -> new DataInputStream(new BufferedInputStream(new LZ4BlockInputStream(in)));
+			default -> new DataInputStream(in);
+		};
+	}
+
+	private DataInputStream openMCCFile() throws IOException {
+		return switch (compressionType) {
+			case GZIP_EXT -> new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(getMCCFile()))));
+			case ZLIB_EXT -> new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(getMCCFile()))));
+			case LZ4_EXT -> new DataInputStream(new BufferedInputStream(new LZ4BlockInputStream(new FileInputStream(getMCCFile()))));
+			default -> new DataInputStream(new BufferedInputStream(new FileInputStream(getMCCFile())));
+		};
+	}
+
 	public int save(RandomAccessFile raf) throws IOException {
-		ExposedByteArrayOutputStream baos = null;
+		return save((DataOutput) raf);
+	}
+
+	// encodes this chunk into its own buffer, so multiple chunks can be encoded at the same time
+	public ExposedByteArrayOutputStream encode() throws IOException {
+		ExposedByteArrayOutputStream out = new ExposedByteArrayOutputStream();
+		save(new DataOutputStream(out));
+		return out;
+	}
+
+	private int save(DataOutput raf) throws IOException {
+		ChunkEncodeEvent event = new ChunkEncodeEvent();
+		event.begin();
+		boolean raw = !dirty && rawData != null;
+		int bytes = write(raf);
+		event.commit(absoluteLocation, compressionType.name(), bytes, raw);
+		Metrics.CHUNKS_ENCODED.increment();
+		Metrics.BYTES_WRITTEN.add(bytes);
+		return bytes;
+	}
+
+	private int write(DataOutput raf) throws IOException {
+		// unmodified chunks are written exactly as they were loaded, without encoding them again
+		if (!dirty && rawData != null) {
+			raf.writeInt(rawData.length + 1); // length includes the compression type byte
+			raf.writeByte(compressionType.getByte());
+			raf.write(rawData);
+			return rawData.length + 5;
+		}
+
+		if (partial) {
+			throw new IllegalStateException("chunk at " + absoluteLocation + " was only partially loaded and can't be saved");
+		}
+
+		// the buffer is reused for every chunk saved on this thread
+		ExposedByteArrayOutputStream baos = ChunkCodecs.buffer();
 
 		DataOutputStream nbtOut = switch (compressionType) {
-			case GZIP, GZIP_EXT -> new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(baos = new ExposedByteArrayOutputStream())));
-			case ZLIB, ZLIB_EXT -> new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(baos = new ExposedByteArrayOutputStream())));
-			case LZ4, LZ4_EXT -> new DataOutputStream(new BufferedOutputStream(new LZ4BlockOutputStream(baos = new ExposedByteArrayOutputStream())));
-			case NONE, NONE_EXT, UNCOMPRESSED, UNCOMPRESSED_EXT -> new DataOutputStream(new BufferedOutputStream(baos = new ExposedByteArrayOutputStream()));
+			case GZIP, GZIP_EXT -> new DataOutputStream(new BufferedOutputStream(ChunkCodecs.gzip(baos, compressionLevel)));
+			case ZLIB, ZLIB_EXT -> new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(baos, ChunkCodecs.deflater(compressionLevel))));
+			case LZ4, LZ4_EXT -> new DataOutputStream(new BufferedOutputStream(new LZ4BlockOutputStream(baos)));
+			case NONE, NONE_EXT, UNCOMPRESSED, UNCOMPRESSED_EXT -> new DataOutputStream(new BufferedOutputStream(baos));
 		};
 
 		new NBTWriter().write(nbtOut, data);
@@ -131,6 +227,21 @@ public abstract class Chunk {
 
 	public void setData(CompoundTag data) {
 		this.data = data;
+		this.partial = false;
+		this.dirty = true;
+	}
+
+	// must be called when the data of this chunk is modified in place
+	public void markDirty() {
+		dirty = true;
+	}
+
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	public boolean isPartial() {
+		return partial;
 	}
 
 	public CompressionType getCompressionType() {
@@ -138,9 +249,36 @@ public abstract class Chunk {
 	}
 
 	public void setCompressionType(CompressionType compressionType) {
+		if (this.compressionType != compressionType) {
+			dirty = true;
+		}
 		this.compressionType = compressionType;
 	}
 
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	// sets the deflate level (0-9 or -1 for the default level) used when this chunk is saved using GZIP or ZLIB
+	public void setCompressionLevel(int compressionLevel) {
+		if (this.compressionLevel != compressionLevel) {
+			dirty = true;
+		}
+		this.compressionLevel = compressionLevel;
+	}
+
+	// returns the number of bytes this chunk occupied on disk when it was loaded or -1 if it has been modified since
+	public long getDiskSize() {
+		if (compressionType != null && compressionType.isExternal()) {
+			return 4096 + getMCCFile().length();
+		}
+		if (rawData == null || dirty) {
+			return -1;
+		}
+		// length, compression type and data, padded to full sectors
+		return (rawData.length + 5 + 4095) / 4096 * 4096L;
+	}
+
 	public Point2i getAbsoluteLocation() {
 		return absoluteLocation;
 	}
@@ -162,7 +300,11 @@ public abstract class Chunk {
 	protected <T extends Chunk> T clone(Function<Point2i, T> chunkConstructor) {
 		T clone = chunkConstructor.apply(absoluteLocation);
 		clone.compressionType = compressionType;
+		clone.compressionLevel = compressionLevel;
 		clone.timestamp = timestamp;
+		clone.partial = partial;
+		clone.rawData = rawData;
+		clone.dirty = dirty;
 		if (data != null) {
 			clone.data = data.copy();
 		}
@@ -0,0 +1,152 @@
+package net.querz.mcaselector.io.mca;
+
+import net.querz.io.ExposedByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+// thread local zlib codecs and scratch buffers, so loading and saving chunks
+// doesn't allocate new native zlib streams and buffers for every single chunk.
+final class ChunkCodecs {
+
+	// scratch buffers that grew larger than this are not kept for the next chunk
+	private static final int MAX_RETAINED_BUFFER_SIZE = 4 * 1024 * 1024;
+
+	// gzip header without a file name, modification time or extra fields
+	private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+	// codecs of all threads, so the native memory of threads that died can be released
+	private static final List<Codecs> allCodecs = new ArrayList<>();
+
+	private static final ThreadLocal<Codecs> codecs = ThreadLocal.withInitial(ChunkCodecs::createCodecs);
+
+	private ChunkCodecs() {}
+
+	// the returned inflater must not be ended and is only valid until the next call on the same thread
+	static Inflater inflater() {
+		Codecs c = codecs.get();
+		if (c.inflater == null) {
+			c.inflater = new Inflater();
+		} else {
+			c.inflater.reset();
+		}
+		return c.inflater;
+	}
+
+	// the returned deflater must not be ended and is only valid until the next call on the same thread
+	static Deflater deflater(int level) {
+		Codecs c = codecs.get();
+		if (c.deflater == null) {
+			c.deflater = new Deflater(level);
+		} else {
+			c.deflater.reset();
+			c.deflater.setLevel(level);
+		}
+		return c.deflater;
+	}
+
+	// writes gzip data using the raw deflater of this thread. the stream is only valid until the next call on the same thread.
+	static DeflaterOutputStream gzip(OutputStream out, int level) throws IOException {
+		Codecs c = codecs.get();
+		if (c.gzipDeflater == null) {
+			c.gzipDeflater = new Deflater(level, true);
+		} else {
+			c.gzipDeflater.reset();
+			c.gzipDeflater.setLevel(level);
+		}
+		return new GZIPDeflaterOutputStream(out, c.gzipDeflater);
+	}
+
+	// the returned buffer is empty and only valid until the next call on the same thread
+	static ExposedByteArrayOutputStream buffer() {
+		Codecs c = codecs.get();
+		if (c.buffer == null || c.buffer.getBuffer().length > MAX_RETAINED_BUFFER_SIZE) {
+			c.buffer = new ExposedByteArrayOutputStream();
+		} else {
+			c.buffer.reset();
+		}
+		return c.buffer;
+	}
+
+	private static Codecs createCodecs() {
+		Codecs c = new Codecs(Thread.currentThread());
+		synchronized (allCodecs) {
+			// the threads of executors that have been shut down won't use their codecs again
+			allCodecs.removeIf(o -> {
+				if (!o.owner.isAlive()) {
+					o.end();
+					return true;
+				}
+				return false;
+			});
+			allCodecs.add(c);
+		}
+		return c;
+	}
+
+	private static class Codecs {
+
+		final Thread owner;
+		Inflater inflater;
+		Deflater deflater;
+		Deflater gzipDeflater;
+		ExposedByteArrayOutputStream buffer;
+
+		Codecs(Thread owner) {
+			this.owner = owner;
+		}
+
+		void end() {
+			if (inflater != null) {
+				inflater.end();
+			}
+			if (deflater != null) {
+				deflater.end();
+			}
+			if (gzipDeflater != null) {
+				gzipDeflater.end();
+			}
+		}
+	}
+
+	// GZIPOutputStream always creates its own deflater, so we write the gzip header and trailer around raw deflate data ourselves
+	private static class GZIPDeflaterOutputStream extends DeflaterOutputStream {
+
+		private final CRC32 crc = new CRC32();
+		private boolean finished = false;
+
+		GZIPDeflaterOutputStream(OutputStream out, Deflater def) throws IOException {
+			super(out, def);
+			out.write(GZIP_HEADER);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			super.write(b, off, len);
+			crc.update(b, off, len);
+		}
+
+		@Override
+		public void finish() throws IOException {
+			if (finished) {
+				return;
+			}
+			super.finish();
+			writeIntLE((int) crc.getValue());
+			writeIntLE((int) def.getBytesRead());
+			finished = true;
+		}
+
+		private void writeIntLE(int i) throws IOException {
+			out.write(i);
+			out.write(i >> 8);
+			out.write(i >> 16);
+			out.write(i >> 24);
+		}
+	}
+}
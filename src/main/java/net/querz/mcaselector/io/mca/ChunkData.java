@@ -22,6 +22,16 @@ public record ChunkData(RegionChunk region, PoiChunk poi, EntitiesChunk entities
 	}
 
 	public void applyFieldChanges(List<Field<?>> fields, boolean force) {
+		// fields modify the chunk data in place, so we need to encode these chunks again when saving
+		if (region != null) {
+			region.markDirty();
+		}
+		if (poi != null) {
+			poi.markDirty();
+		}
+		if (entities != null) {
+			entities.markDirty();
+		}
 		for (Field<?> field : fields) {
 			if (force) {
 				field.force(this);
@@ -31,6 +41,17 @@ public record ChunkData(RegionChunk region, PoiChunk poi, EntitiesChunk entities
 		}
 	}
 
+	// the number of bytes this chunk occupied on disk in all mca files when it was loaded
+	public long diskSize() {
+		long size = 0;
+		for (Chunk chunk : new Chunk[]{region, poi, entities}) {
+			if (chunk != null) {
+				size += Math.max(chunk.getDiskSize(), 0);
+			}
+		}
+		return size;
+	}
+
 	public int parseData(Overlay parser) {
 		return parser.parseValue(this);
 	}
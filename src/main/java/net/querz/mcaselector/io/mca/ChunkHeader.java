@@ -0,0 +1,29 @@
+package net.querz.mcaselector.io.mca;
+
+import net.querz.mcaselector.io.FileHelper;
+import net.querz.mcaselector.point.Point2i;
+import java.io.File;
+
+// the information about a chunk that is available from the header of an mca file without reading the chunk itself.
+// directory is the directory of the mca file, where the chunk's mcc file is located if it is stored externally.
+public record ChunkHeader(Point2i location, int timestamp, int sectors, File directory) {
+
+	// the size of the chunk's mcc file if it is stored externally, otherwise 0.
+	// this accesses the file system, so it is only computed when it is needed.
+	public long externalSize() {
+		// chunks stored in an mcc file only occupy a single sector in the mca file
+		if (sectors != 1 || directory == null) {
+			return 0;
+		}
+		return new File(directory, FileHelper.createMCCFileName(location)).length();
+	}
+
+	public boolean isExternal() {
+		return externalSize() > 0;
+	}
+
+	// the number of bytes this chunk occupies on disk
+	public long size() {
+		return sectors * 4096L + externalSize();
+	}
+}
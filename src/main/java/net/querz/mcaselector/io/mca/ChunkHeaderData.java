@@ -0,0 +1,14 @@
+package net.querz.mcaselector.io.mca;
+
+// the headers of a chunk in the region, poi and entities mca files. a header is null if the chunk doesn't exist in that file.
+public record ChunkHeaderData(ChunkHeader region, ChunkHeader poi, ChunkHeader entities) {
+
+	// the number of bytes this chunk occupies on disk in all mca files
+	public long size() {
+		return (region == null ? 0 : region.size()) + (poi == null ? 0 : poi.size()) + (entities == null ? 0 : entities.size());
+	}
+
+	public boolean isEmpty() {
+		return region == null && poi == null && entities == null;
+	}
+}
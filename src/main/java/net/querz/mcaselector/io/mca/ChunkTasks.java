@@ -0,0 +1,59 @@
+package net.querz.mcaselector.io.mca;
+
+import net.querz.mcaselector.io.JobHandler;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// runs an action for all 1024 chunks of a region. when fewer regions are being processed than there are cores,
+// the chunks are split into fork-join tasks, so the cores that would otherwise be idle help with a single region.
+public final class ChunkTasks {
+
+	// the smallest number of chunks a task is split into
+	private static final int MIN_CHUNKS_PER_TASK = 16;
+
+	private ChunkTasks() {}
+
+	// the action must be safe to be called concurrently for different chunk indices
+	public static void forEachChunk(IntConsumer action) {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int parallelism = pool.getParallelism();
+		// queued jobs don't keep any cores busy
+		int regions = Math.max(JobHandler.getRunningJobs(), 1);
+		if (parallelism < 2 || regions >= parallelism) {
+			for (int i = 0; i < 1024; i++) {
+				action.accept(i);
+			}
+			return;
+		}
+		// split the chunks evenly between the cores that are not busy with other regions
+		int tasks = Math.max(parallelism / regions, 1);
+		int chunksPerTask = Math.max(1024 / tasks, MIN_CHUNKS_PER_TASK);
+		pool.invoke(new ChunkRangeTask(action, 0, 1024, chunksPerTask));
+	}
+
+	private static class ChunkRangeTask extends RecursiveAction {
+
+		private final IntConsumer action;
+		private final int from, to, threshold;
+
+		private ChunkRangeTask(IntConsumer action, int from, int to, int threshold) {
+			this.action = action;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= threshold) {
+				for (int i = from; i < to; i++) {
+					action.accept(i);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new ChunkRangeTask(action, from, mid, threshold), new ChunkRangeTask(action, mid, to, threshold));
+		}
+	}
+}
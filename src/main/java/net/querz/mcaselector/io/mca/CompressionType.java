@@ -32,6 +32,11 @@ public enum CompressionType {
 		return type;
 	}
 
+	// external chunk data is stored in a separate c.<x>.<z>.mcc file
+	public boolean isExternal() {
+		return type < 0;
+	}
+
 	public CompressionType getExternal() {
 		return switch (this) {
 			case NONE -> NONE_EXT;
@@ -1,32 +1,36 @@
 package net.querz.mcaselector.io.mca;
 
-import net.querz.mcaselector.io.ByteArrayPointer;
+import net.querz.io.ExposedByteArrayOutputStream;
+import net.querz.mcaselector.config.ConfigProvider;
+import net.querz.mcaselector.io.DataPointer;
 import net.querz.mcaselector.io.FileHelper;
+import net.querz.mcaselector.io.StagingHelper;
+import net.querz.mcaselector.metrics.Metrics;
 import net.querz.mcaselector.point.Point2i;
 import net.querz.mcaselector.point.Point3i;
 import net.querz.mcaselector.range.Range;
 import net.querz.mcaselector.selection.ChunkSet;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 
 public abstract class MCAFile<T extends Chunk> {
 
 	private static final Logger LOGGER = LogManager.getLogger(MCAFile.class);
 
+	// files with more changed chunks than this are rewritten entirely instead of being updated in place
+	private static final int MAX_IN_PLACE_CHUNKS = 128;
+
 	protected Point2i location;
 
 	protected File file;
@@ -37,6 +41,13 @@ public abstract class MCAFile<T extends Chunk> {
 	private transient int[] offsets;
 	private transient byte[] sectors;
 
+	// when loaded lazily, chunks are only decompressed and parsed the first time they are accessed
+	private transient DataPointer lazySource;
+	private transient boolean[] pending;
+	// chunks whose raw data has been read but that are still being decoded
+	private transient boolean[] decoding;
+	private transient PartialNBTReader partialReader;
+
 	protected Function<Point2i, T> chunkConstructor;
 
 	// file name must have well formed mca file format (r.<x>.<z>.mca)
@@ -73,10 +84,13 @@ public abstract class MCAFile<T extends Chunk> {
 
 	// returns false if no chunk was saved and the file only consists of the mca header
 	public boolean saveWithTempFile(File dest) throws IOException {
-		File tempFile = File.createTempFile(dest.getName(), null, null);
+		File tempFile = StagingHelper.createStagingFile(dest);
 		boolean result;
 		try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rw")) {
 			result = save(raf);
+		} catch (IOException | RuntimeException ex) {
+			StagingHelper.discard(tempFile);
+			throw ex;
 		}
 		if (!result) {
 			if (dest.exists()) {
@@ -87,29 +101,44 @@ public abstract class MCAFile<T extends Chunk> {
 				}
 			}
 
-			if (!tempFile.delete()) {
-				LOGGER.warn("failed to delete temp file {}", tempFile);
-			}
+			StagingHelper.discard(tempFile);
 		} else {
-			Files.move(tempFile.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			StagingHelper.commit(tempFile, dest);
 		}
 		return result;
 	}
 
 	public boolean save(RandomAccessFile raf) throws IOException {
+		if (ConfigProvider.GLOBAL.getParallelChunkCompression()) {
+			return saveParallel(raf);
+		}
+
 		int globalOffset = 2;
 		int lastWritten = 0;
 
 		raf.seek(0);
 		for (int i = 0; i < 1024; i++) {
 			raf.seek(globalOffset * 4096L);
-			T chunk = chunks[i];
 
-			if (chunk == null || chunk.isEmpty()) {
-				continue;
-			}
+			int timestamp;
+			if (isPendingChunk(i)) {
+				// chunks that have never been accessed don't need to be decoded
+				int written = copyPendingChunk(raf, i);
+				if (written == 0) {
+					continue;
+				}
+				lastWritten = written;
+				timestamp = timestamps[i];
+			} else {
+				T chunk = chunks[i];
 
-			lastWritten = chunk.save(raf);
+				if (chunk == null || chunk.isEmpty()) {
+					continue;
+				}
+
+				lastWritten = chunk.save(raf);
+				timestamp = chunk.getTimestamp();
+			}
 
 			int sectors = (lastWritten >> 12) + (lastWritten % 4096 == 0 ? 0 : 1);
 
@@ -121,7 +150,77 @@ public abstract class MCAFile<T extends Chunk> {
 
 			// write timestamp
 			raf.seek(4096 + i * 4);
-			raf.writeInt(chunk.getTimestamp());
+			raf.writeInt(timestamp);
+
+			globalOffset += sectors;
+		}
+
+		// padding
+		if (lastWritten % 4096 != 0) {
+			raf.seek(globalOffset * 4096L - 1);
+			raf.write(0);
+		}
+
+		return globalOffset != 2;
+	}
+
+	// encodes all modified chunks into separate buffers, in parallel if there are idle cores,
+	// and then writes them one after another, followed by the header in a single write.
+	private boolean saveParallel(RandomAccessFile raf) throws IOException {
+		ExposedByteArrayOutputStream[] encoded = new ExposedByteArrayOutputStream[1024];
+		try {
+			ChunkTasks.forEachChunk(i -> {
+				if (isPendingChunk(i)) {
+					return;
+				}
+				T chunk = chunks[i];
+				if (chunk == null || chunk.isEmpty()) {
+					return;
+				}
+				try {
+					encoded[i] = chunk.encode();
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			});
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+
+		byte[] header = new byte[8192];
+		int globalOffset = 2;
+		int lastWritten = 0;
+
+		for (int i = 0; i < 1024; i++) {
+			raf.seek(globalOffset * 4096L);
+
+			int timestamp;
+			if (isPendingChunk(i)) {
+				int written = copyPendingChunk(raf, i);
+				if (written == 0) {
+					continue;
+				}
+				lastWritten = written;
+				timestamp = timestamps[i];
+			} else if (encoded[i] != null) {
+				raf.write(encoded[i].getBuffer(), 0, encoded[i].size());
+				lastWritten = encoded[i].size();
+				timestamp = chunks[i].getTimestamp();
+			} else {
+				continue;
+			}
+
+			int sectors = (lastWritten >> 12) + (lastWritten % 4096 == 0 ? 0 : 1);
+
+			header[i * 4] = (byte) (globalOffset >>> 16);
+			header[i * 4 + 1] = (byte) (globalOffset >> 8);
+			header[i * 4 + 2] = (byte) globalOffset;
+			header[i * 4 + 3] = (byte) sectors;
+
+			header[4096 + i * 4] = (byte) (timestamp >>> 24);
+			header[4096 + i * 4 + 1] = (byte) (timestamp >> 16);
+			header[4096 + i * 4 + 2] = (byte) (timestamp >> 8);
+			header[4096 + i * 4 + 3] = (byte) timestamp;
 
 			globalOffset += sectors;
 		}
@@ -132,6 +231,9 @@ public abstract class MCAFile<T extends Chunk> {
 			raf.write(0);
 		}
 
+		raf.seek(0);
+		raf.write(header);
+
 		return globalOffset != 2;
 	}
 
@@ -139,21 +241,27 @@ public abstract class MCAFile<T extends Chunk> {
 		deFragment(file);
 	}
 
-	// reads raw chunk data from source and writes it into a new temp file,
-	// depending on which chunks of this MCA file are present in memory.
+	// copies raw chunk data from source into a new temp file, depending on which chunks of this MCA file are present in
+	// the header. chunks that are stored one after another in the source file are transferred as a single run.
 	public void deFragment(File dest) throws IOException {
 		// loadHeader needs to be called before, otherwise this will delete everything
 
 		// create temp file
-		File tmpFile = File.createTempFile(file.getName(), null, null);
+		File tmpFile = StagingHelper.createStagingFile(dest);
 		int globalOffset = 2; // chunk data starts at 8192 (after 2 sectors)
 
 		int skippedChunks = 0;
 
-		// rafTmp if on the new file
-		try (RandomAccessFile rafTmp = new RandomAccessFile(tmpFile, "rw");
-		     RandomAccessFile source = new RandomAccessFile(file, "r")) {
-			// loop over all offsets, readHeader the raw byte data (complete sections) and write it to new file
+		ByteBuffer header = ByteBuffer.allocate(FileHelper.HEADER_SIZE);
+
+		try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		     FileChannel target = FileChannel.open(tmpFile.toPath(), StandardOpenOption.WRITE)) {
+			target.position(FileHelper.HEADER_SIZE);
+
+			// the current run of sectors that are contiguous in the source file
+			long runStart = 0;
+			int runLength = 0;
+
 			for (int i = 0; i < offsets.length; i++) {
 				// don't do anything if this chunk is empty
 				if (offsets[i] == 0 || sectors[i] == 0) {
@@ -163,37 +271,39 @@ public abstract class MCAFile<T extends Chunk> {
 
 				int sectors = this.sectors[i] & 0xFF;
 
-				// write offset and sector size to tmp file
-				rafTmp.seek(i * 4L);
-				rafTmp.writeByte(globalOffset >>> 16);
-				rafTmp.writeByte(globalOffset >> 8 & 0xFF);
-				rafTmp.writeByte(globalOffset & 0xFF);
-				rafTmp.writeByte(sectors);
+				header.putInt(i * 4, globalOffset << 8 | sectors);
+				header.putInt(4096 + i * 4, timestamps[i]);
 
-				// write timestamp to tmp file
-				rafTmp.seek(4096 + i * 4L);
-				rafTmp.writeInt(timestamps[i]);
-
-				// copy chunk data to tmp file
-				source.seek(offsets[i] * 4096L);
-				rafTmp.seek(globalOffset * 4096L);
-
-				DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(source.getFD()), sectors * 4096));
-				DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(rafTmp.getFD()), sectors * 4096));
+				if (runLength > 0 && runStart + runLength == offsets[i]) {
+					runLength += sectors;
+				} else {
+					transferSectors(source, target, runStart, runLength);
+					runStart = offsets[i];
+					runLength = sectors;
+				}
 
-				byte[] data = new byte[sectors * 4096];
-				dis.read(data);
-				dos.write(data);
 				offsets[i] = globalOffset; // always keep MCAFile information up to date
 				globalOffset += sectors;
 			}
+			transferSectors(source, target, runStart, runLength);
+
+			// make sure the last sector is complete, even if the source file was truncated
+			if (target.size() < globalOffset * 4096L) {
+				target.write(ByteBuffer.allocate(1), globalOffset * 4096L - 1);
+			}
+
+			header.clear();
+			while (header.hasRemaining()) {
+				target.write(header, header.position());
+			}
+		} catch (IOException | RuntimeException ex) {
+			StagingHelper.discard(tmpFile);
+			throw ex;
 		}
 
 		if (skippedChunks == 1024) {
 			LOGGER.debug("all chunks in {} deleted, removing entire file", file.getAbsolutePath());
-			if (tmpFile.exists() && !tmpFile.delete()) {
-				LOGGER.warn("failed to delete tmpFile {} after all chunks were deleted", tmpFile.getAbsolutePath());
-			}
+			StagingHelper.discard(tmpFile);
 
 			// only delete dest file if we are deFragmenting inside the source directory
 			if (dest.getCanonicalPath().equals(file.getCanonicalPath())) {
@@ -203,8 +313,205 @@ public abstract class MCAFile<T extends Chunk> {
 			}
 		} else {
 			LOGGER.debug("moving temp file {} to {}", tmpFile.getAbsolutePath(), dest.getAbsolutePath());
-			Files.move(tmpFile.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			StagingHelper.commit(tmpFile, dest);
+		}
+	}
+
+	// transfers the sectors from the source to the current position of the target
+	private void transferSectors(FileChannel source, FileChannel target, long sector, int count) throws IOException {
+		long position = sector * 4096L;
+		long end = position + count * 4096L;
+		while (position < end) {
+			long transferred = source.transferTo(position, end - position, target);
+			if (transferred <= 0) {
+				// the source file is shorter than its header claims, the missing data stays zeroed
+				LOGGER.warn("unexpected end of file {} at sector {}", file, position / 4096);
+				target.position(target.position() + end - position);
+				return;
+			}
+			position += transferred;
+		}
+	}
+
+	// only writes the header in place, without touching any chunk data.
+	// sectors of deleted chunks are not reclaimed until this file is defragmented.
+	public void saveHeader() throws IOException {
+		// loadHeader needs to be called before, otherwise this will delete everything
+
+		if (deleteIfEmpty()) {
+			return;
+		}
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.write(createHeader());
+		}
+	}
+
+	// writes only the chunks that changed since this file was loaded into the existing file and updates the header.
+	// if there is no existing file, too many chunks changed or a chunk is too large, the entire file is rewritten instead.
+	public void saveChanges() throws IOException {
+		if (offsets == null || !file.exists() || file.length() < FileHelper.HEADER_SIZE) {
+			saveWithTempFile();
+			return;
+		}
+
+		int changed = 0;
+		for (int i = 0; i < 1024; i++) {
+			if (isChangedChunk(i)) {
+				changed++;
+			}
+		}
+		if (changed > MAX_IN_PLACE_CHUNKS) {
+			saveWithTempFile();
+			return;
+		}
+
+		int[] indices = new int[changed];
+		for (int i = 0, c = 0; i < 1024; i++) {
+			if (isChangedChunk(i)) {
+				indices[c++] = i;
+			}
+		}
+
+		boolean written;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			written = writeChunksInPlace(raf, indices, i -> chunks[i]);
+		}
+		if (!written) {
+			saveWithTempFile();
+			return;
+		}
+		deleteIfEmpty();
+	}
+
+	// chunks that failed to load or have not been accessed are never changed
+	private boolean isChangedChunk(int index) {
+		if (isPendingChunk(index) || chunks[index] == null) {
+			return false;
 		}
+		return chunks[index].isEmpty() ? offsets[index] != 0 : chunks[index].isDirty();
+	}
+
+	// writes chunks into an existing file and replaces the header afterwards. empty chunks are removed from the header.
+	// all chunks are encoded before anything is written and they are only written to sectors that were free before,
+	// so the old header stays valid until the new one is written. sectors freed by this save are only reused by the
+	// next one. returns false without writing anything if a chunk is too large to be stored in its sectors.
+	private boolean writeChunksInPlace(RandomAccessFile raf, int[] indices, IntFunction<T> chunkAt) throws IOException {
+		ExposedByteArrayOutputStream[] encoded = new ExposedByteArrayOutputStream[indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			T chunk = chunkAt.apply(indices[i]);
+			if (chunk != null && !chunk.isEmpty()) {
+				encoded[i] = chunk.encode();
+				if (sectorsFor(encoded[i].size()) > 255) {
+					LOGGER.debug("chunk at index {} in {} is too large to be saved in place", indices[i], file);
+					return false;
+				}
+			}
+		}
+
+		int[] newOffsets = offsets.clone();
+		byte[] newSectors = sectors.clone();
+		int[] newTimestamps = timestamps.clone();
+
+		SectorAllocator allocator = new SectorAllocator(offsets, sectors, raf.length());
+		for (int i = 0; i < indices.length; i++) {
+			int index = indices[i];
+			if (encoded[i] == null) {
+				newOffsets[index] = 0;
+				newSectors[index] = 0;
+				newTimestamps[index] = 0;
+				continue;
+			}
+
+			int needed = sectorsFor(encoded[i].size());
+			int offset = allocator.allocate(needed);
+			raf.seek(offset * 4096L);
+			raf.write(encoded[i].getBuffer(), 0, encoded[i].size());
+
+			// padding
+			long end = (offset + needed) * 4096L;
+			if (raf.length() < end) {
+				raf.seek(end - 1);
+				raf.write(0);
+			}
+
+			newOffsets[index] = offset;
+			newSectors[index] = (byte) needed;
+			newTimestamps[index] = chunkAt.apply(index).getTimestamp();
+		}
+
+		// the chunk data needs to be on disk before the header references it
+		if (ConfigProvider.GLOBAL.getDurability() != StagingHelper.Durability.NONE) {
+			raf.getFD().sync();
+		}
+		raf.seek(0);
+		raf.write(createHeader(newOffsets, newSectors, newTimestamps));
+
+		offsets = newOffsets;
+		sectors = newSectors;
+		timestamps = newTimestamps;
+		return true;
+	}
+
+	private static int sectorsFor(int size) {
+		return (size >> 12) + (size % 4096 == 0 ? 0 : 1);
+	}
+
+	private byte[] createHeader() {
+		return createHeader(offsets, sectors, timestamps);
+	}
+
+	private static byte[] createHeader(int[] offsets, byte[] sectors, int[] timestamps) {
+		byte[] header = new byte[FileHelper.HEADER_SIZE];
+		for (int i = 0; i < 1024; i++) {
+			if (offsets[i] == 0 || sectors[i] == 0) {
+				continue;
+			}
+
+			header[i * 4] = (byte) (offsets[i] >>> 16);
+			header[i * 4 + 1] = (byte) (offsets[i] >> 8);
+			header[i * 4 + 2] = (byte) offsets[i];
+			header[i * 4 + 3] = sectors[i];
+
+			header[4096 + i * 4] = (byte) (timestamps[i] >>> 24);
+			header[4096 + i * 4 + 1] = (byte) (timestamps[i] >> 16);
+			header[4096 + i * 4 + 2] = (byte) (timestamps[i] >> 8);
+			header[4096 + i * 4 + 3] = (byte) timestamps[i];
+		}
+		return header;
+	}
+
+	// deletes the file if the header doesn't reference any chunks
+	private boolean deleteIfEmpty() {
+		for (int i = 0; i < 1024; i++) {
+			if (offsets[i] != 0 && sectors[i] != 0) {
+				return false;
+			}
+		}
+		LOGGER.debug("all chunks in {} deleted, removing entire file", file.getAbsolutePath());
+		if (!file.delete()) {
+			LOGGER.warn("failed to delete file {} after all chunks were deleted", file.getAbsolutePath());
+		}
+		return true;
+	}
+
+	// returns the header information of this chunk or null if the chunk doesn't exist. requires the header to be loaded.
+	public ChunkHeader getChunkHeader(int index) {
+		if (offsets[index] == 0 || sectors[index] == 0) {
+			return null;
+		}
+		Point2i chunkLocation = location.regionToChunk().add(new Point2i(index));
+		return new ChunkHeader(chunkLocation, timestamps[index], sectors[index] & 0xFF, file.getParentFile());
+	}
+
+	public int getUsedSectors() {
+		int used = 2;
+		for (int i = 0; i < 1024; i++) {
+			if (offsets[i] != 0) {
+				used += sectors[i] & 0xFF;
+			}
+		}
+		return used;
 	}
 
 	public int[] load() throws IOException {
@@ -235,7 +542,7 @@ public abstract class MCAFile<T extends Chunk> {
 		}
 	}
 
-	public int[] load(ByteArrayPointer ptr) throws IOException {
+	public int[] load(DataPointer ptr) throws IOException {
 		loadHeader(ptr);
 
 		Point2i origin = location.regionToChunk();
@@ -261,7 +568,166 @@ public abstract class MCAFile<T extends Chunk> {
 		return offsets;
 	}
 
+	// only reads the header and keeps a reference to the raw data, chunks are loaded on demand
+	public int[] loadLazy(DataPointer ptr) throws IOException {
+		return loadLazy(ptr, null);
+	}
+
+	// if a partial reader is provided, chunks only contain the tags requested by it
+	public int[] loadLazy(DataPointer ptr, PartialNBTReader partialReader) throws IOException {
+		loadHeader(ptr);
+
+		this.partialReader = partialReader;
+		lazySource = ptr;
+		pending = new boolean[1024];
+		decoding = new boolean[1024];
+		for (int i = 0; i < 1024; i++) {
+			chunks[i] = null;
+			pending[i] = offsets[i] != 0;
+		}
+		return offsets;
+	}
+
+	private void loadPendingChunk(int index) {
+		DataPointer ptr = lazySource;
+		if (ptr == null) {
+			return;
+		}
+		// the pointer is shared between all chunks of this file, so only reading the raw data happens while holding
+		// its lock. this allows multiple chunks of the same file to be decoded at the same time.
+		T chunk;
+		synchronized (ptr) {
+			awaitDecoded(ptr, index);
+			if (pending == null || !pending[index]) {
+				return;
+			}
+			pending[index] = false;
+			chunk = readPendingChunk(ptr, index);
+			if (chunk == null) {
+				chunks[index] = null;
+				return;
+			}
+			decoding[index] = true;
+		}
+		try {
+			chunk.decode(partialReader);
+		} catch (Exception ex) {
+			chunk = null;
+			LOGGER.warn("failed to load chunk at index {} in {}", index, file, ex);
+		} finally {
+			synchronized (ptr) {
+				chunks[index] = chunk;
+				decoding[index] = false;
+				ptr.notifyAll();
+			}
+		}
+	}
+
+	private T readPendingChunk(DataPointer ptr, int index) {
+		if (offsets[index] == 0) {
+			return null;
+		}
+		Point2i chunkLocation = location.regionToChunk().add(new Point2i(index));
+		try {
+			ptr.seek(offsets[index] * 4096L);
+			T chunk = chunkConstructor.apply(chunkLocation);
+			chunk.setTimestamp(timestamps[index]);
+			chunk.loadRaw(ptr);
+			return chunk;
+		} catch (Exception ex) {
+			LOGGER.warn("failed to load chunk at {}", chunkLocation, ex);
+			return null;
+		}
+	}
+
+	// waits until another thread has finished decoding this chunk, the lock of the pointer must be held
+	private void awaitDecoded(DataPointer ptr, int index) {
+		while (decoding != null && decoding[index]) {
+			try {
+				ptr.wait();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	// loads all chunks that have not been accessed yet and releases the raw data
+	protected void loadPendingChunks() {
+		DataPointer ptr = lazySource;
+		if (ptr == null) {
+			return;
+		}
+		synchronized (ptr) {
+			for (int i = 0; i < 1024; i++) {
+				loadPendingChunk(i);
+			}
+			lazySource = null;
+			pending = null;
+			decoding = null;
+		}
+	}
+
+	private boolean isPendingChunk(int index) {
+		DataPointer ptr = lazySource;
+		if (ptr == null) {
+			return false;
+		}
+		synchronized (ptr) {
+			return pending != null && pending[index];
+		}
+	}
+
+	// copies the raw chunk data of a chunk that has not been loaded yet from the source.
+	// returns the number of bytes written or 0 if the chunk data is invalid.
+	private int copyPendingChunk(RandomAccessFile raf, int index) throws IOException {
+		DataPointer ptr = lazySource;
+		synchronized (ptr) {
+			byte[] raw;
+			try {
+				ptr.seek(offsets[index] * 4096L);
+				int length = ptr.readInt();
+				if (length < 1 || length > (sectors[index] & 0xFF) * 4096 - 4) {
+					LOGGER.warn("invalid chunk data length {} at index {} in {}", length, index, file);
+					return 0;
+				}
+				raw = new byte[length + 4];
+				raw[0] = (byte) (length >>> 24);
+				raw[1] = (byte) (length >> 16);
+				raw[2] = (byte) (length >> 8);
+				raw[3] = (byte) length;
+				if (ptr.readNBytes(raw, 4, length) != length) {
+					LOGGER.warn("unexpected end of chunk data at index {} in {}", index, file);
+					return 0;
+				}
+			} catch (IOException | IndexOutOfBoundsException ex) {
+				LOGGER.warn("failed to copy chunk data at index {} in {}", index, file, ex);
+				return 0;
+			}
+			raf.write(raw);
+			Metrics.BYTES_WRITTEN.add(raw.length);
+			return raw.length;
+		}
+	}
+
+	private void clearPendingChunk(int index) {
+		DataPointer ptr = lazySource;
+		if (ptr == null) {
+			return;
+		}
+		synchronized (ptr) {
+			awaitDecoded(ptr, index);
+			if (pending != null) {
+				pending[index] = false;
+			}
+		}
+	}
+
 	public void loadHeader(RandomAccessFile raf) throws IOException {
+		lazySource = null;
+		pending = null;
+		decoding = null;
+		partialReader = null;
 		offsets = new int[1024];
 		sectors = new byte[1024];
 
@@ -279,7 +745,11 @@ public abstract class MCAFile<T extends Chunk> {
 		}
 	}
 
-	public void loadHeader(ByteArrayPointer ptr) throws IOException {
+	public void loadHeader(DataPointer ptr) throws IOException {
+		lazySource = null;
+		pending = null;
+		decoding = null;
+		partialReader = null;
 		offsets = new int[1024];
 		sectors = new byte[1024];
 
@@ -297,7 +767,7 @@ public abstract class MCAFile<T extends Chunk> {
 			for (int i = 0; i < 1024; i++) {
 				timestamps[i] = ptr.readInt();
 			}
-		} catch (ArrayIndexOutOfBoundsException ex) {
+		} catch (IndexOutOfBoundsException ex) {
 			throw new IOException(ex);
 		}
 	}
@@ -347,7 +817,7 @@ public abstract class MCAFile<T extends Chunk> {
 		}
 	}
 
-	public void loadBorderChunks(ByteArrayPointer ptr) throws IOException {
+	public void loadBorderChunks(DataPointer ptr) throws IOException {
 		loadHeader(ptr);
 
 		// top row / bottom row
@@ -363,7 +833,7 @@ public abstract class MCAFile<T extends Chunk> {
 		}
 	}
 
-	private void loadChunk(ByteArrayPointer ptr, int index) throws IOException {
+	private void loadChunk(DataPointer ptr, int index) throws IOException {
 		try {
 			if (offsets[index] == 0) {
 				chunks[index] = null;
@@ -378,30 +848,38 @@ public abstract class MCAFile<T extends Chunk> {
 			try {
 				chunks[index] = chunkConstructor.apply(chunkLocation);
 				chunks[index].setTimestamp(timestamps[index]);
-				chunks[index].load(ptr);
+				chunks[index].load(ptr, partialReader);
 			} catch (Exception ex) {
 				chunks[index] = null;
 				LOGGER.warn("failed to load chunk at {}", chunkLocation, ex);
 			}
-		} catch (ArrayIndexOutOfBoundsException ex) {
+		} catch (IndexOutOfBoundsException ex) {
 			throw new IOException(ex);
 		}
 	}
 
+	// only writes this single chunk into the existing file, see saveChanges()
 	public void saveSingleChunk(Point2i location, T chunk) throws IOException {
-		if (file.exists() && file.length() > 0) {
-			load();
-		} else if (chunk == null || chunk.isEmpty()) {
-			LOGGER.debug("nothing to save and no existing file found for chunk {}", location);
+		int index = location.asChunkIndex();
+
+		if (!file.exists() || file.length() < FileHelper.HEADER_SIZE) {
+			if (chunk == null || chunk.isEmpty()) {
+				LOGGER.debug("nothing to save and no existing file found for chunk {}", location);
+				return;
+			}
+			setChunk(index, chunk);
+			setTimestamp(index, chunk.getTimestamp());
+			saveWithTempFile();
 			return;
 		}
 
-		int index = location.asChunkIndex();
-		setChunk(index, chunk);
-		if (chunk != null) {
-			setTimestamp(index, chunk.getTimestamp());
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			loadHeader(raf);
+			if (!writeChunksInPlace(raf, new int[]{index}, i -> chunk)) {
+				throw new IOException("chunk at index " + index + " in " + file + " is too large to be saved");
+			}
 		}
-		saveWithTempFile();
+		deleteIfEmpty();
 	}
 
 // END OF IO STUFF -----------------------------------------------------------------------------------------------------
@@ -410,6 +888,7 @@ public abstract class MCAFile<T extends Chunk> {
 
 	public void deleteChunks(ChunkSet selection) {
 		for (int chunk : selection) {
+			clearPendingChunk(chunk);
 			timestamps[chunk] = 0;
 			chunks[chunk] = null;
 			sectors[chunk] = 0;
@@ -417,9 +896,33 @@ public abstract class MCAFile<T extends Chunk> {
 		}
 	}
 
+	// returns the number of chunks that need to be encoded again when this file is saved.
+	// if chunks is null, the compression of all chunks is changed.
+	public int setCompression(CompressionType compressionType, int compressionLevel, ChunkSet chunks) {
+		int changed = 0;
+		for (int i = 0; i < 1024; i++) {
+			if (chunks != null && !chunks.get(i)) {
+				continue;
+			}
+			T chunk = getChunk(i);
+			if (chunk == null || chunk.isEmpty()) {
+				continue;
+			}
+			chunk.setCompressionType(compressionType);
+			chunk.setCompressionLevel(compressionLevel);
+			if (chunk.isDirty()) {
+				changed++;
+			}
+		}
+		return changed;
+	}
+
 	public abstract void mergeChunksInto(MCAFile<T> destination, Point3i offset, boolean overwrite, ChunkSet sourceChunks, ChunkSet targetChunks, List<Range> ranges);
 
 	protected void mergeChunksInto(MCAFile<T> destination, Point3i offset, boolean overwrite, ChunkSet sourceChunks, ChunkSet targetChunks, List<Range> ranges, BiFunction<Point2i, Integer, T> chunkCreator) {
+		loadPendingChunks();
+		destination.loadPendingChunks();
+
 		Point2i relativeOffset = location.regionToChunk().add(offset.toPoint2i()).sub(destination.location.regionToChunk());
 		int startX = relativeOffset.getX() > 0 ? 0 : 32 - (32 + relativeOffset.getX());
 		int limitX = relativeOffset.getX() > 0 ? (32 - relativeOffset.getX()) : 32;
@@ -468,6 +971,7 @@ public abstract class MCAFile<T extends Chunk> {
 						}
 
 						try {
+							destinationChunk.dirty = true;
 							sourceChunk.merge(destinationChunk.getData(), ranges, offset.getY());
 						} catch (Exception ex) {
 							Point2i srcChunk = location.regionToChunk().add(x, z);
@@ -514,10 +1018,11 @@ public abstract class MCAFile<T extends Chunk> {
 	}
 
 	public T getChunkAt(Point2i location) {
-		return chunks[getChunkIndex(location)];
+		return getChunk(getChunkIndex(location));
 	}
 
 	public T getChunk(int index) {
+		loadPendingChunk(index);
 		return chunks[index];
 	}
 
@@ -526,14 +1031,16 @@ public abstract class MCAFile<T extends Chunk> {
 	}
 
 	public void setChunkAt(Point2i location, T chunk) {
-		chunks[getChunkIndex(location)] = chunk;
+		setChunk(getChunkIndex(location), chunk);
 	}
 
 	public void setChunk(int index, T chunk) {
+		clearPendingChunk(index);
 		chunks[index] = chunk;
 	}
 
 	public void deleteChunk(int index) {
+		clearPendingChunk(index);
 		chunks[index] = null;
 		timestamps[index] = 0;
 		offsets[index] = 0;
@@ -541,6 +1048,7 @@ public abstract class MCAFile<T extends Chunk> {
 	}
 
 	public boolean isEmpty() {
+		loadPendingChunks();
 		for (T chunk : chunks) {
 			if (chunk != null) {
 				return false;
@@ -550,6 +1058,7 @@ public abstract class MCAFile<T extends Chunk> {
 	}
 
 	protected <V extends MCAFile<T>> V clone(Function<File, V> mcaFileConstructor) {
+		loadPendingChunks();
 		V clone = mcaFileConstructor.apply(file);
 		for (int i = 0; i < chunks.length; i++) {
 			if (chunks[i] != null) {
@@ -0,0 +1,197 @@
+package net.querz.mcaselector.io.mca;
+
+import net.querz.mcaselector.filter.Filter;
+import net.querz.nbt.*;
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+// reads only the requested tags from an uncompressed nbt stream and skips everything else.
+// paths are relative to the root compound and separated by dots, e.g. "Level.InhabitedTime".
+public class PartialNBTReader {
+
+	private static final int MAX_DEPTH = 512;
+
+	// binary nbt tag ids
+	private static final byte END = 0;
+	private static final byte BYTE = 1;
+	private static final byte SHORT = 2;
+	private static final byte INT = 3;
+	private static final byte LONG = 4;
+	private static final byte FLOAT = 5;
+	private static final byte DOUBLE = 6;
+	private static final byte BYTE_ARRAY = 7;
+	private static final byte STRING = 8;
+	private static final byte LIST = 9;
+	private static final byte COMPOUND = 10;
+	private static final byte INT_ARRAY = 11;
+	private static final byte LONG_ARRAY = 12;
+
+	private final Set<String> paths = new HashSet<>();
+	private final Set<String> parents = new HashSet<>();
+
+	public PartialNBTReader(Set<String> paths) {
+		// DataVersion is always needed to pick the correct version specific implementation
+		this.paths.add("DataVersion");
+		this.paths.addAll(paths);
+		for (String path : this.paths) {
+			int index = -1;
+			while ((index = path.indexOf('.', index + 1)) != -1) {
+				parents.add(path.substring(0, index));
+			}
+		}
+	}
+
+	// returns null if the filter requires the full chunk data
+	public static PartialNBTReader of(Filter<?> filter) {
+		Set<String> paths = filter.getRequiredTags();
+		return paths == null ? null : new PartialNBTReader(paths);
+	}
+
+	public Tag read(DataInput in) throws IOException {
+		byte type = in.readByte();
+		if (type != COMPOUND) {
+			throw new IOException("unexpected chunk data tag type " + type + ", expected " + COMPOUND);
+		}
+		skipString(in);
+		return readCompound(in, "", 0);
+	}
+
+	private CompoundTag readCompound(DataInput in, String path, int depth) throws IOException {
+		if (depth > MAX_DEPTH) {
+			throw new IOException("reached maximum depth of " + MAX_DEPTH);
+		}
+		CompoundTag compound = new CompoundTag();
+		byte type;
+		while ((type = in.readByte()) != END) {
+			String name = in.readUTF();
+			String childPath = path.isEmpty() ? name : path + "." + name;
+			if (paths.contains(childPath)) {
+				compound.put(name, readTag(in, type, depth + 1));
+			} else if (type == COMPOUND && parents.contains(childPath)) {
+				compound.put(name, readCompound(in, childPath, depth + 1));
+			} else {
+				skipTag(in, type, depth + 1);
+			}
+		}
+		return compound;
+	}
+
+	private CompoundTag readFullCompound(DataInput in, int depth) throws IOException {
+		if (depth > MAX_DEPTH) {
+			throw new IOException("reached maximum depth of " + MAX_DEPTH);
+		}
+		CompoundTag compound = new CompoundTag();
+		byte type;
+		while ((type = in.readByte()) != END) {
+			String name = in.readUTF();
+			compound.put(name, readTag(in, type, depth + 1));
+		}
+		return compound;
+	}
+
+	private Tag readTag(DataInput in, byte type, int depth) throws IOException {
+		return switch (type) {
+			case BYTE -> ByteTag.valueOf(in.readByte());
+			case SHORT -> ShortTag.valueOf(in.readShort());
+			case INT -> IntTag.valueOf(in.readInt());
+			case LONG -> LongTag.valueOf(in.readLong());
+			case FLOAT -> FloatTag.valueOf(in.readFloat());
+			case DOUBLE -> DoubleTag.valueOf(in.readDouble());
+			case BYTE_ARRAY -> {
+				byte[] data = new byte[in.readInt()];
+				in.readFully(data);
+				yield new ByteArrayTag(data);
+			}
+			case STRING -> StringTag.valueOf(in.readUTF());
+			case LIST -> {
+				if (depth > MAX_DEPTH) {
+					throw new IOException("reached maximum depth of " + MAX_DEPTH);
+				}
+				byte elementType = in.readByte();
+				int length = in.readInt();
+				ListTag list = new ListTag();
+				for (int i = 0; i < length; i++) {
+					list.add(readTag(in, elementType, depth + 1));
+				}
+				yield list;
+			}
+			case COMPOUND -> readFullCompound(in, depth);
+			case INT_ARRAY -> {
+				int[] data = new int[in.readInt()];
+				for (int i = 0; i < data.length; i++) {
+					data[i] = in.readInt();
+				}
+				yield new IntArrayTag(data);
+			}
+			case LONG_ARRAY -> {
+				long[] data = new long[in.readInt()];
+				for (int i = 0; i < data.length; i++) {
+					data[i] = in.readLong();
+				}
+				yield new LongArrayTag(data);
+			}
+			default -> throw new IOException("invalid tag type " + type);
+		};
+	}
+
+	private void skipTag(DataInput in, byte type, int depth) throws IOException {
+		if (depth > MAX_DEPTH) {
+			throw new IOException("reached maximum depth of " + MAX_DEPTH);
+		}
+		switch (type) {
+			case BYTE -> skipFully(in, 1);
+			case SHORT -> skipFully(in, 2);
+			case INT, FLOAT -> skipFully(in, 4);
+			case LONG, DOUBLE -> skipFully(in, 8);
+			case BYTE_ARRAY -> skipFully(in, in.readInt());
+			case STRING -> skipString(in);
+			case LIST -> {
+				byte elementType = in.readByte();
+				int length = in.readInt();
+				switch (elementType) {
+					case END -> {}
+					case BYTE -> skipFully(in, length);
+					case SHORT -> skipFully(in, length * 2L);
+					case INT, FLOAT -> skipFully(in, length * 4L);
+					case LONG, DOUBLE -> skipFully(in, length * 8L);
+					default -> {
+						for (int i = 0; i < length; i++) {
+							skipTag(in, elementType, depth + 1);
+						}
+					}
+				}
+			}
+			case COMPOUND -> {
+				byte childType;
+				while ((childType = in.readByte()) != END) {
+					skipString(in);
+					skipTag(in, childType, depth + 1);
+				}
+			}
+			case INT_ARRAY -> skipFully(in, in.readInt() * 4L);
+			case LONG_ARRAY -> skipFully(in, in.readInt() * 8L);
+			default -> throw new IOException("invalid tag type " + type);
+		}
+	}
+
+	private static void skipString(DataInput in) throws IOException {
+		skipFully(in, in.readUnsignedShort());
+	}
+
+	private static void skipFully(DataInput in, long n) throws IOException {
+		if (n < 0) {
+			throw new IOException("negative length " + n);
+		}
+		while (n > 0) {
+			int skipped = in.skipBytes((int) Math.min(n, Integer.MAX_VALUE));
+			if (skipped <= 0) {
+				// skipBytes does not signal EOF, so we read a single byte to provoke an EOFException
+				in.readByte();
+				skipped = 1;
+			}
+			n -= skipped;
+		}
+	}
+}
@@ -19,6 +19,7 @@ public class PoiChunk extends Chunk implements Cloneable {
 
 	@Override
 	public boolean relocate(Point3i offset) {
+		dirty = true;
 		ChunkRelocator relocator = VersionController.getPoiRelocator(data.getIntOrDefault("DataVersion", 0));
 		return relocator.relocate(data, offset);
 	}
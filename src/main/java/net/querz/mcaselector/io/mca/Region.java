@@ -1,8 +1,9 @@
 package net.querz.mcaselector.io.mca;
 
 import net.querz.mcaselector.changer.Field;
-import net.querz.mcaselector.filter.Filter;
+import net.querz.mcaselector.filter.filters.GroupFilter;
 import net.querz.mcaselector.io.ByteArrayPointer;
+import net.querz.mcaselector.io.DataPointer;
 import net.querz.mcaselector.io.FileHelper;
 import net.querz.mcaselector.io.RegionDirectories;
 import net.querz.mcaselector.point.Point2i;
@@ -16,6 +17,7 @@ import org.apache.logging.log4j.Logger;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Predicate;
 
 // holds data for chunks, poi and entities
 public class Region {
@@ -30,16 +32,22 @@ public class Region {
 
 	private Point2i location;
 
-	public static Region loadRegion(RegionDirectories dirs, byte[] regionData, byte[] poiData, byte[] entitiesData) throws IOException {
+	public static Region loadRegion(RegionDirectories dirs, DataPointer regionData, DataPointer poiData, DataPointer entitiesData) throws IOException {
+		return loadRegion(dirs, regionData, poiData, entitiesData, null);
+	}
+
+	// regions loaded with a partial reader only contain the requested region chunk tags and can't be saved
+	public static Region loadRegion(RegionDirectories dirs, DataPointer regionData, DataPointer poiData, DataPointer entitiesData, PartialNBTReader partialReader) throws IOException {
 		Region r = new Region();
 		if (dirs.getRegion() != null && dirs.getRegion().length() > FileHelper.HEADER_SIZE && regionData != null) {
-			r.loadRegion(dirs.getRegion(), new ByteArrayPointer(regionData));
+			r.region = new RegionMCAFile(dirs.getRegion());
+			r.region.loadLazy(regionData, partialReader);
 		}
 		if (dirs.getPoi() != null && poiData != null) {
-			r.loadPoi(dirs.getPoi(), new ByteArrayPointer(poiData));
+			r.loadPoi(dirs.getPoi(), poiData);
 		}
 		if (dirs.getEntities() != null && entitiesData != null) {
-			r.loadEntities(dirs.getEntities(), new ByteArrayPointer(entitiesData));
+			r.loadEntities(dirs.getEntities(), entitiesData);
 		}
 		r.location = dirs.getLocation();
 		r.directories = dirs;
@@ -76,6 +84,7 @@ public class Region {
 			r.entities = new EntitiesMCAFile(dirs.getEntities());
 			r.entities.loadHeader(new ByteArrayPointer(entitiesHeader));
 		}
+		r.location = dirs.getLocation();
 		r.directories = dirs;
 		return r;
 	}
@@ -111,9 +120,9 @@ public class Region {
 		region.load();
 	}
 
-	public void loadRegion(File src, ByteArrayPointer ptr) throws IOException {
+	public void loadRegion(File src, DataPointer ptr) throws IOException {
 		region = new RegionMCAFile(src);
-		region.load(ptr);
+		region.loadLazy(ptr);
 	}
 
 	public void loadPoi(File src) throws IOException {
@@ -121,9 +130,9 @@ public class Region {
 		poi.load();
 	}
 
-	public void loadPoi(File src, ByteArrayPointer ptr) throws IOException {
+	public void loadPoi(File src, DataPointer ptr) throws IOException {
 		poi = new PoiMCAFile(src);
-		poi.load(ptr);
+		poi.loadLazy(ptr);
 	}
 
 	public void loadEntities(File src) throws IOException {
@@ -131,9 +140,9 @@ public class Region {
 		entities.load();
 	}
 
-	public void loadEntities(File src, ByteArrayPointer ptr) throws IOException {
+	public void loadEntities(File src, DataPointer ptr) throws IOException {
 		entities = new EntitiesMCAFile(src);
-		entities.load(ptr);
+		entities.loadLazy(ptr);
 	}
 
 	public RegionMCAFile getRegion() {
@@ -275,6 +284,30 @@ public class Region {
 		}
 	}
 
+	public void saveChanges() throws IOException {
+		if (region != null) {
+			region.saveChanges();
+		}
+		if (poi != null) {
+			poi.saveChanges();
+		}
+		if (entities != null) {
+			entities.saveChanges();
+		}
+	}
+
+	public void saveHeaders() throws IOException {
+		if (region != null) {
+			region.saveHeader();
+		}
+		if (poi != null) {
+			poi.saveHeader();
+		}
+		if (entities != null) {
+			entities.saveHeader();
+		}
+	}
+
 	public void deFragment() throws IOException {
 		if (region != null) {
 			region.deFragment();
@@ -323,25 +356,35 @@ public class Region {
 		}
 	}
 
-	public boolean deleteChunks(Filter<?> filter, Selection selection) {
-		boolean deleted = false;
-		for (int i = 0; i < 1024; i++) {
-			RegionChunk region = this.region.getChunk(i);
-			EntitiesChunk entities = this.entities == null ? null : this.entities.getChunk(i);
-			PoiChunk poi = this.poi == null ? null : this.poi.getChunk(i);
+	public boolean deleteChunks(Predicate<ChunkData> filter, Selection selection) {
+		boolean[] matches = new boolean[1024];
+		ChunkTasks.forEachChunk(i -> {
+			// skip unselected chunks before accessing them, so they don't need to be loaded
+			if (selection != null && !selection.isChunkSelected(this.location.regionToChunk().add(new Point2i(i)))) {
+				return;
+			}
 
-			if (region == null || region.isEmpty() || selection != null && !selection.isAnyChunkInRegionSelected(region.getAbsoluteLocation())) {
-				continue;
+			RegionChunk region = this.region.getChunk(i);
+			if (region == null || region.isEmpty()) {
+				return;
 			}
 
 			Point2i location = region.getAbsoluteLocation();
 			if (location == null) {
-				continue;
+				return;
 			}
 
-			ChunkData filterData = new ChunkData(region, poi, entities, selection != null && selection.isChunkSelected(location));
+			EntitiesChunk entities = this.entities == null ? null : this.entities.getChunk(i);
+			PoiChunk poi = this.poi == null ? null : this.poi.getChunk(i);
+
+			ChunkData filterData = new ChunkData(region, poi, entities, selection != null);
 
-			if ((selection == null || selection.isChunkSelected(location)) && filter.matches(filterData)) {
+			matches[i] = filter.test(filterData);
+		});
+
+		boolean deleted = false;
+		for (int i = 0; i < 1024; i++) {
+			if (matches[i]) {
 				deleteChunkIndex(i);
 				deleted = true;
 			}
@@ -349,7 +392,7 @@ public class Region {
 		return deleted;
 	}
 
-	public boolean keepChunks(Filter<?> filter, Selection selection) {
+	public boolean keepChunks(Predicate<ChunkData> filter, Selection selection) {
 		boolean deleted = false;
 		for (int i = 0; i < 1024; i++) {
 			RegionChunk region = this.region.getChunk(i);
@@ -369,7 +412,7 @@ public class Region {
 
 			// keep chunk if filter AND selection applies
 			// ignore selection if it's null
-			if (!filter.matches(filterData) || selection != null && !selection.isChunkSelected(location)) {
+			if (!filter.test(filterData) || selection != null && !selection.isChunkSelected(location)) {
 				deleteChunkIndex(i);
 				deleted = true;
 			}
@@ -389,48 +432,114 @@ public class Region {
 		}
 	}
 
-	public ChunkSet getFilteredChunks(Filter<?> filter, Selection selection) {
-		ChunkSet chunks = new ChunkSet();
-
+	// evaluates the filter using only the headers of the mca files, which need to be loaded. chunks that match are
+	// added to matching, chunks that need to be loaded to decide whether they match are added to undecided.
+	// chunks that don't exist in any of the files are decided by evaluating the compiled filter on empty chunk data,
+	// exactly like loading the region would.
+	public void getHeaderFilteredChunks(GroupFilter filter, Predicate<ChunkData> predicate, Selection selection, ChunkSet matching, ChunkSet undecided) {
+		ChunkData empty = new ChunkData(null, null, null, selection != null);
+		Boolean emptyResult = null;
 		for (int i = 0; i < 1024; i++) {
+			Point2i chunkLocation = location.regionToChunk().add(new Point2i(i));
+
+			if (selection != null && !selection.isChunkSelected(chunkLocation)) {
+				continue;
+			}
+
+			ChunkHeaderData headerData = new ChunkHeaderData(
+					this.region == null ? null : this.region.getChunkHeader(i),
+					this.poi == null ? null : this.poi.getChunkHeader(i),
+					this.entities == null ? null : this.entities.getChunkHeader(i));
+
+			Boolean result;
+			if (headerData.isEmpty()) {
+				if (emptyResult == null) {
+					emptyResult = matchesEmpty(predicate, empty);
+				}
+				result = emptyResult;
+			} else {
+				result = filter.matchesHeader(headerData);
+			}
+			if (result == null) {
+				undecided.set(i);
+			} else if (result) {
+				matching.set(i);
+			}
+		}
+	}
+
+	private static boolean matchesEmpty(Predicate<ChunkData> predicate, ChunkData empty) {
+		try {
+			return predicate.test(empty);
+		} catch (Exception ex) {
+			// a chunk that failed to be evaluated is not selected, see getFilteredChunks()
+			return false;
+		}
+	}
+
+	public ChunkSet getFilteredChunks(Predicate<ChunkData> filter, Selection selection) {
+		boolean[] matches = new boolean[1024];
+
+		ChunkTasks.forEachChunk(i -> {
+			Point2i chunkLocation = location.regionToChunk().add(new Point2i(i));
+
+			// skip unselected chunks before accessing them, so they don't need to be loaded
+			if (selection != null && !selection.isChunkSelected(chunkLocation)) {
+				return;
+			}
+
 			RegionChunk regionChunk = this.region == null ? null : this.region.getChunk(i);
 			EntitiesChunk entitiesChunk = this.entities == null ? null : this.entities.getChunk(i);
 			PoiChunk poiChunk = this.poi == null ? null : this.poi.getChunk(i);
 
-			Point2i chunkLocation = location.regionToChunk().add(new Point2i(i));
-
-			ChunkData filterData = new ChunkData(regionChunk, poiChunk, entitiesChunk, selection != null && selection.isChunkSelected(chunkLocation));
+			ChunkData filterData = new ChunkData(regionChunk, poiChunk, entitiesChunk, selection != null);
 
 			try {
-				if ((selection == null || selection.isChunkSelected(chunkLocation)) && filter.matches(filterData)) {
-					chunks.set(i);
-				}
+				matches[i] = filter.test(filterData);
 			} catch (Exception ex) {
 				LOGGER.warn("failed to select chunk {}: {}", chunkLocation, ex.getMessage());
 			}
+		});
+
+		ChunkSet chunks = new ChunkSet();
+		for (int i = 0; i < 1024; i++) {
+			if (matches[i]) {
+				chunks.set(i);
+			}
 		}
 		return chunks;
 	}
 
 	public void applyFieldChanges(List<Field<?>> fields, boolean force, Selection selection) {
 		Timer t = new Timer();
-		boolean selected = false;
-		for (int x = 0; x < 32; x++) {
-			for (int z = 0; z < 32; z++) {
-				Point2i absoluteLocation = location.regionToChunk().add(x, z);
-				if (selection == null || (selected = selection.isChunkSelected(absoluteLocation))) {
-					ChunkData chunkData = getChunkDataAt(absoluteLocation, selected);
-					try {
-						chunkData.applyFieldChanges(fields, force);
-					} catch (Exception ex) {
-						LOGGER.warn("failed to apply field changes to chunk {}: {}", absoluteLocation, ex.getMessage());
-					}
+		ChunkTasks.forEachChunk(i -> {
+			Point2i absoluteLocation = location.regionToChunk().add(new Point2i(i));
+			if (selection == null || selection.isChunkSelected(absoluteLocation)) {
+				ChunkData chunkData = getChunkData(i, selection != null);
+				try {
+					chunkData.applyFieldChanges(fields, force);
+				} catch (Exception ex) {
+					LOGGER.warn("failed to apply field changes to chunk {}: {}", absoluteLocation, ex.getMessage());
 				}
 			}
-		}
+		});
 		LOGGER.debug("took {} to apply field changes to region {}", t, location);
 	}
 
+	public int setCompression(CompressionType compressionType, int compressionLevel, ChunkSet chunks) {
+		int changed = 0;
+		if (region != null) {
+			changed += region.setCompression(compressionType, compressionLevel, chunks);
+		}
+		if (poi != null) {
+			changed += poi.setCompression(compressionType, compressionLevel, chunks);
+		}
+		if (entities != null) {
+			changed += entities.setCompression(compressionType, compressionLevel, chunks);
+		}
+		return changed;
+	}
+
 	public void mergeInto(Region region, Point3i offset, boolean overwrite, ChunkSet sourceChunks, ChunkSet targetChunks, List<Range> ranges) {
 		if (this.region != null) {
 			this.region.mergeChunksInto(region.region, offset, overwrite, sourceChunks, targetChunks, ranges);
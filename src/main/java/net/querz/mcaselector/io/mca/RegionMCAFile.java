@@ -65,6 +65,7 @@ public class RegionMCAFile extends MCAFile<RegionChunk> implements Cloneable {
 						continue;
 					}
 
+					destinationChunk.dirty = true;
 					HeightmapCalculator heightmapCalculator = VersionController.getHeightmapCalculator(destinationChunk.getData().getIntOrDefault("DataVersion", 0));
 					heightmapCalculator.worldSurface(destinationChunk.getData());
 					heightmapCalculator.oceanFloor(destinationChunk.getData());
@@ -0,0 +1,45 @@
+package net.querz.mcaselector.io.mca;
+
+import java.util.BitSet;
+
+// keeps track of the sectors of an mca file that are in use, so chunks can be written into an existing file
+// without rewriting all other chunks.
+class SectorAllocator {
+
+	private final BitSet used = new BitSet();
+
+	// the first sector after the end of the file
+	private int end;
+
+	SectorAllocator(int[] offsets, byte[] sectors, long fileLength) {
+		// header
+		used.set(0, 2);
+		for (int i = 0; i < offsets.length; i++) {
+			if (offsets[i] != 0 && sectors[i] != 0) {
+				used.set(offsets[i], offsets[i] + (sectors[i] & 0xFF));
+			}
+		}
+		end = (int) Math.max(used.length(), (fileLength + 4095) / 4096);
+	}
+
+	// returns the offset of the first free run of sectors that is large enough.
+	// if there is none, the sectors are appended to the end of the file.
+	int allocate(int count) {
+		int start = used.nextClearBit(2);
+		while (start < end) {
+			int next = used.nextSetBit(start);
+			if (next == -1 || next >= end) {
+				// free space at the end of the file can simply be extended
+				break;
+			}
+			if (next - start >= count) {
+				used.set(start, start + count);
+				return start;
+			}
+			start = used.nextClearBit(next);
+		}
+		used.set(start, start + count);
+		end = Math.max(end, start + count);
+		return start;
+	}
+}
@@ -0,0 +1,45 @@
+package net.querz.mcaselector.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import net.querz.mcaselector.point.Point2i;
+
+@Name("net.querz.mcaselector.CacheDB")
+@Label("Cache DB Access")
+@Category({"MCA Selector", "IO"})
+@Description("Reading or writing cached data of a region in the cache db")
+public class CacheDBEvent extends jdk.jfr.Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Table")
+	String table;
+
+	@Label("Region X")
+	int regionX;
+
+	@Label("Region Z")
+	int regionZ;
+
+	@Label("Bytes")
+	@Description("Size of the stored data, 0 if nothing was cached")
+	@DataAmount
+	long bytes;
+
+	public void commit(String operation, String table, Point2i region, long bytes) {
+		if (shouldCommit()) {
+			this.operation = operation;
+			this.table = table;
+			if (region != null) {
+				regionX = region.getX();
+				regionZ = region.getZ();
+			}
+			this.bytes = bytes;
+			commit();
+		}
+	}
+}
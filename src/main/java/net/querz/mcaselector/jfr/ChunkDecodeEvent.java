@@ -0,0 +1,44 @@
+package net.querz.mcaselector.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import net.querz.mcaselector.point.Point2i;
+
+@Name("net.querz.mcaselector.ChunkDecode")
+@Label("Chunk Decode")
+@Category({"MCA Selector", "Chunks"})
+@Description("Decompressing and parsing the nbt data of a chunk")
+public class ChunkDecodeEvent extends jdk.jfr.Event {
+
+	@Label("Chunk X")
+	int chunkX;
+
+	@Label("Chunk Z")
+	int chunkZ;
+
+	@Label("Compression")
+	String compression;
+
+	@Label("Compressed Bytes")
+	@DataAmount
+	long bytes;
+
+	@Label("Partial")
+	boolean partial;
+
+	public void commit(Point2i location, String compression, long bytes, boolean partial) {
+		if (shouldCommit()) {
+			if (location != null) {
+				chunkX = location.getX();
+				chunkZ = location.getZ();
+			}
+			this.compression = compression;
+			this.bytes = bytes;
+			this.partial = partial;
+			commit();
+		}
+	}
+}
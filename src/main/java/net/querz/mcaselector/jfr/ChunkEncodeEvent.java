@@ -0,0 +1,44 @@
+package net.querz.mcaselector.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import net.querz.mcaselector.point.Point2i;
+
+@Name("net.querz.mcaselector.ChunkEncode")
+@Label("Chunk Encode")
+@Category({"MCA Selector", "Chunks"})
+@Description("Writing a chunk, either by copying its unmodified raw data or by encoding and compressing it again")
+public class ChunkEncodeEvent extends jdk.jfr.Event {
+
+	@Label("Chunk X")
+	int chunkX;
+
+	@Label("Chunk Z")
+	int chunkZ;
+
+	@Label("Compression")
+	String compression;
+
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+
+	@Label("Copied Raw Data")
+	boolean raw;
+
+	public void commit(Point2i location, String compression, long bytes, boolean raw) {
+		if (shouldCommit()) {
+			if (location != null) {
+				chunkX = location.getX();
+				chunkZ = location.getZ();
+			}
+			this.compression = compression;
+			this.bytes = bytes;
+			this.raw = raw;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package net.querz.mcaselector.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import java.io.File;
+
+@Name("net.querz.mcaselector.FileRead")
+@Label("MCA File Read")
+@Category({"MCA Selector", "IO"})
+@Description("Reading an mca file or its header onto the heap or mapping it into memory")
+public class FileReadEvent extends jdk.jfr.Event {
+
+	@Label("File")
+	String file;
+
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+
+	@Label("Memory Mapped")
+	boolean mapped;
+
+	public void commit(File file, long bytes, boolean mapped) {
+		if (shouldCommit()) {
+			this.file = file.getPath();
+			this.bytes = bytes;
+			this.mapped = mapped;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package net.querz.mcaselector.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import net.querz.mcaselector.point.Point2i;
+
+@Name("net.querz.mcaselector.ProcessJob")
+@Label("Process Job")
+@Category({"MCA Selector", "Jobs"})
+@Description("Processing of a region on the process pool, without waiting for its save job")
+public class ProcessJobEvent extends jdk.jfr.Event {
+
+	@Label("Job")
+	String job;
+
+	@Label("Region X")
+	int regionX;
+
+	@Label("Region Z")
+	int regionZ;
+
+	@Label("Bytes Read")
+	@DataAmount
+	long bytesRead;
+
+	public void commit(String job, Point2i region, long bytesRead) {
+		if (shouldCommit()) {
+			this.job = job;
+			if (region != null) {
+				regionX = region.getX();
+				regionZ = region.getZ();
+			}
+			this.bytesRead = bytesRead;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package net.querz.mcaselector.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import net.querz.mcaselector.point.Point2i;
+
+@Name("net.querz.mcaselector.SaveJob")
+@Label("Save Job")
+@Category({"MCA Selector", "Jobs"})
+@Description("Saving the result of a process job on the save pool")
+public class SaveJobEvent extends jdk.jfr.Event {
+
+	@Label("Job")
+	String job;
+
+	@Label("Region X")
+	int regionX;
+
+	@Label("Region Z")
+	int regionZ;
+
+	public void commit(String job, Point2i region) {
+		if (shouldCommit()) {
+			this.job = job;
+			if (region != null) {
+				regionX = region.getX();
+				regionZ = region.getZ();
+			}
+			commit();
+		}
+	}
+}
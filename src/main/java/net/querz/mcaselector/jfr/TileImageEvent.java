@@ -0,0 +1,34 @@
+package net.querz.mcaselector.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import net.querz.mcaselector.point.Point2i;
+
+@Name("net.querz.mcaselector.TileImage")
+@Label("Tile Image")
+@Category({"MCA Selector", "Rendering"})
+@Description("Rendering the image of a region")
+public class TileImageEvent extends jdk.jfr.Event {
+
+	@Label("Region X")
+	int regionX;
+
+	@Label("Region Z")
+	int regionZ;
+
+	@Label("Scale")
+	int scale;
+
+	public void commit(Point2i region, int scale) {
+		if (shouldCommit()) {
+			if (region != null) {
+				regionX = region.getX();
+				regionZ = region.getZ();
+			}
+			this.scale = scale;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package net.querz.mcaselector.metrics;
+
+import net.querz.mcaselector.io.JobHandler;
+import net.querz.mcaselector.progress.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+// process wide counters. they are exposed as an MXBean while the application is running and summarized
+// after a headless run, so the number of threads can be tuned with numbers from the machine it's running on.
+public final class Metrics {
+
+	private static final Logger LOGGER = LogManager.getLogger(Metrics.class);
+
+	public static final String OBJECT_NAME = "net.querz.mcaselector:type=Metrics";
+
+	public static final LongAdder BYTES_READ = new LongAdder();
+	public static final LongAdder BYTES_WRITTEN = new LongAdder();
+	public static final LongAdder CHUNKS_DECODED = new LongAdder();
+	public static final LongAdder CHUNKS_ENCODED = new LongAdder();
+
+	// images found in the memory or disk cache of the ImagePool vs. images that had to be generated
+	public static final HitCounter IMAGE_POOL = new HitCounter();
+	// mca files found in the cache of the RegionImageGenerator vs. mca files that had to be loaded
+	public static final HitCounter REGION_CACHE = new HitCounter();
+
+	public static final LatencyCounter CACHE_DB = new LatencyCounter();
+
+	private static boolean registered = false;
+
+	private Metrics() {}
+
+	public static synchronized void register() {
+		if (registered) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsBean(), new ObjectName(OBJECT_NAME));
+			registered = true;
+			LOGGER.debug("registered metrics as {}", OBJECT_NAME);
+		} catch (JMException ex) {
+			LOGGER.warn("failed to register metrics", ex);
+		}
+	}
+
+	public static Snapshot snapshot() {
+		return new Snapshot(
+			System.nanoTime(),
+			BYTES_READ.sum(),
+			BYTES_WRITTEN.sum(),
+			CHUNKS_DECODED.sum(),
+			CHUNKS_ENCODED.sum(),
+			CACHE_DB.getCount(),
+			CACHE_DB.getTotalNanos());
+	}
+
+	public static final class HitCounter {
+
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+
+		public void hit() {
+			hits.increment();
+		}
+
+		public void miss() {
+			misses.increment();
+		}
+
+		// returns a value between 0 and 1 or NaN if nothing was requested yet
+		public double getHitRate() {
+			long h = hits.sum();
+			long total = h + misses.sum();
+			return total == 0 ? Double.NaN : (double) h / total;
+		}
+	}
+
+	public static final class LatencyCounter {
+
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+
+		public void record(long nanos) {
+			count.increment();
+			totalNanos.add(nanos);
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getTotalNanos() {
+			return totalNanos.sum();
+		}
+	}
+
+	// the state of the counters at a point in time. subtracting two snapshots gives the throughput in between.
+	public record Snapshot(long nanoTime, long bytesRead, long bytesWritten, long chunksDecoded, long chunksEncoded, long cacheDBOperations, long cacheDBNanos) {
+
+		public Snapshot since(Snapshot start) {
+			return new Snapshot(
+				nanoTime - start.nanoTime,
+				bytesRead - start.bytesRead,
+				bytesWritten - start.bytesWritten,
+				chunksDecoded - start.chunksDecoded,
+				chunksEncoded - start.chunksEncoded,
+				cacheDBOperations - start.cacheDBOperations,
+				cacheDBNanos - start.cacheDBNanos);
+		}
+
+		public boolean isEmpty() {
+			return bytesRead == 0 && bytesWritten == 0 && chunksDecoded == 0 && chunksEncoded == 0 && cacheDBOperations == 0;
+		}
+
+		// only meaningful for the difference between two snapshots
+		@Override
+		public String toString() {
+			double seconds = Math.max(nanoTime, 1) / 1_000_000_000D;
+			StringBuilder sb = new StringBuilder();
+			sb.append(String.format("took %s%n", Timer.formatNano(nanoTime)));
+			sb.append(String.format("read:    %.1f MiB (%.1f MiB/s)%n", mib(bytesRead), mib(bytesRead) / seconds));
+			sb.append(String.format("written: %.1f MiB (%.1f MiB/s)%n", mib(bytesWritten), mib(bytesWritten) / seconds));
+			sb.append(String.format("chunks:  %d decoded (%.0f/s), %d encoded (%.0f/s)", chunksDecoded, chunksDecoded / seconds, chunksEncoded, chunksEncoded / seconds));
+			if (cacheDBOperations > 0) {
+				sb.append(String.format("%ncache:   %d operations, %.3f ms average", cacheDBOperations, cacheDBNanos / 1_000_000D / cacheDBOperations));
+			}
+			return sb.toString();
+		}
+
+		private static double mib(long bytes) {
+			return bytes / 1048576D;
+		}
+	}
+
+	private static class MetricsBean implements MetricsMXBean {
+
+		private long lastRateTime = System.nanoTime();
+		private long lastRateChunks = 0;
+
+		@Override
+		public int getReadQueueSize() {
+			return JobHandler.getReadQueueSize();
+		}
+
+		@Override
+		public int getProcessQueueSize() {
+			return JobHandler.getProcessQueueSize();
+		}
+
+		@Override
+		public int getSaveQueueSize() {
+			return JobHandler.getSaveQueueSize();
+		}
+
+		@Override
+		public int getParseQueueSize() {
+			return JobHandler.getParseQueueSize();
+		}
+
+		@Override
+		public int getQueuedJobs() {
+			return JobHandler.getReadQueueSize() + JobHandler.getProcessQueueSize() + JobHandler.getSaveQueueSize() + JobHandler.getParseQueueSize();
+		}
+
+		@Override
+		public int getRunningJobs() {
+			return JobHandler.getRunningJobs();
+		}
+
+		@Override
+		public long getBytesRead() {
+			return BYTES_READ.sum();
+		}
+
+		@Override
+		public long getBytesWritten() {
+			return BYTES_WRITTEN.sum();
+		}
+
+		@Override
+		public long getChunksDecoded() {
+			return CHUNKS_DECODED.sum();
+		}
+
+		@Override
+		public long getChunksEncoded() {
+			return CHUNKS_ENCODED.sum();
+		}
+
+		@Override
+		public synchronized double getChunksDecodedPerSecond() {
+			long now = System.nanoTime();
+			long chunks = CHUNKS_DECODED.sum();
+			double rate = (chunks - lastRateChunks) / (Math.max(now - lastRateTime, 1) / 1_000_000_000D);
+			lastRateTime = now;
+			lastRateChunks = chunks;
+			return rate;
+		}
+
+		@Override
+		public double getImagePoolHitRate() {
+			return IMAGE_POOL.getHitRate();
+		}
+
+		@Override
+		public double getRegionCacheHitRate() {
+			return REGION_CACHE.getHitRate();
+		}
+
+		@Override
+		public long getCacheDBOperations() {
+			return CACHE_DB.getCount();
+		}
+
+		@Override
+		public double getCacheDBAverageLatencyMillis() {
+			long count = CACHE_DB.getCount();
+			return count == 0 ? 0 : CACHE_DB.getTotalNanos() / 1_000_000D / count;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package net.querz.mcaselector.metrics;
+
+// the live metrics of MCA Selector, registered as net.querz.mcaselector:type=Metrics
+public interface MetricsMXBean {
+
+	int getReadQueueSize();
+
+	int getProcessQueueSize();
+
+	int getSaveQueueSize();
+
+	int getParseQueueSize();
+
+	// the number of jobs waiting in any of the queues
+	int getQueuedJobs();
+
+	// the number of jobs that are currently processing, saving or parsing data
+	int getRunningJobs();
+
+	long getBytesRead();
+
+	long getBytesWritten();
+
+	long getChunksDecoded();
+
+	long getChunksEncoded();
+
+	// the number of chunks decoded per second since this attribute was read the last time
+	double getChunksDecodedPerSecond();
+
+	double getImagePoolHitRate();
+
+	double getRegionCacheHitRate();
+
+	long getCacheDBOperations();
+
+	double getCacheDBAverageLatencyMillis();
+}
@@ -0,0 +1,9 @@
+package net.querz.mcaselector.overlay;
+
+import net.querz.mcaselector.io.mca.ChunkHeaderData;
+
+// overlays that can be calculated from the mca headers alone, so no chunk data needs to be loaded
+public interface HeaderParser {
+
+	int parseHeader(ChunkHeaderData data);
+}
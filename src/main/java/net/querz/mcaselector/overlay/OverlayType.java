@@ -13,6 +13,7 @@ public enum OverlayType {
 	DATA_VERSION("DataVersion", DataVersionOverlay::new),
 	AVERAGE_HEIGHT("AverageHeight", AverageHeightOverlay::new),
 	BLOCK_AMOUNT("#Blocks", BlockAmountOverlay::new),
+	CHUNK_SIZE("ChunkSize", ChunkSizeOverlay::new),
 	CUSTOM("Custom", CustomOverlay::new);
 
 	private final String name;
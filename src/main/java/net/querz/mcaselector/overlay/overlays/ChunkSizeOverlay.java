@@ -0,0 +1,30 @@
+package net.querz.mcaselector.overlay.overlays;
+
+import net.querz.mcaselector.io.mca.ChunkData;
+import net.querz.mcaselector.io.mca.ChunkHeaderData;
+import net.querz.mcaselector.overlay.AmountParser;
+import net.querz.mcaselector.overlay.HeaderParser;
+import net.querz.mcaselector.overlay.OverlayType;
+
+// the size in KiB a chunk occupies on disk. chunks stored in external mcc files are at least 1 MiB large.
+public class ChunkSizeOverlay extends AmountParser implements HeaderParser {
+
+	public ChunkSizeOverlay() {
+		super(OverlayType.CHUNK_SIZE);
+	}
+
+	@Override
+	public int parseValue(ChunkData chunkData) {
+		return (int) (chunkData.diskSize() / 1024);
+	}
+
+	@Override
+	public int parseHeader(ChunkHeaderData data) {
+		return (int) (data.size() / 1024);
+	}
+
+	@Override
+	public String name() {
+		return "ChunkSize";
+	}
+}
@@ -0,0 +1,59 @@
+package net.querz.mcaselector.progress;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// counts durations in buckets of powers of two milliseconds: <1ms, 1-2ms, 2-4ms, ... and everything above the last bucket
+public class DurationHistogram {
+
+	private static final int BUCKETS = 24;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong(0);
+	private final AtomicLong total = new AtomicLong(0);
+	private final AtomicLong max = new AtomicLong(0);
+
+	public void record(long nano) {
+		long millis = nano / 1_000_000;
+		int bucket = millis == 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(millis), BUCKETS - 1);
+		buckets.incrementAndGet(bucket);
+		count.incrementAndGet();
+		total.addAndGet(nano);
+		max.accumulateAndGet(nano, Math::max);
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getMaxNano() {
+		return max.get();
+	}
+
+	public long getMeanNano() {
+		long c = count.get();
+		return c == 0 ? 0 : total.get() / c;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("count=%d, mean=%s, max=%s", getCount(), Timer.formatNano(getMeanNano()), Timer.formatNano(getMaxNano())));
+		for (int i = 0; i < BUCKETS; i++) {
+			long c = buckets.get(i);
+			if (c == 0) {
+				continue;
+			}
+			String range;
+			if (i == 0) {
+				range = "<1ms";
+			} else if (i == BUCKETS - 1) {
+				range = ">=" + (1L << (i - 1)) + "ms";
+			} else {
+				range = (1L << (i - 1)) + "-" + (1L << i) + "ms";
+			}
+			sb.append(String.format("%n  %12s: %d", range, c));
+		}
+		return sb.toString();
+	}
+}
@@ -60,6 +60,7 @@ public enum Translation {
 	MENU_TOOLS_FILTER_CHUNKS("menu.tools.filter_chunks"),
 	MENU_TOOLS_CHANGE_FIELDS("menu.tools.change_fields"),
 	MENU_TOOLS_EDIT_NBT("menu.tools.edit_nbt"),
+	MENU_TOOLS_RECOMPRESS_CHUNKS("menu.tools.recompress_chunks"),
 	MENU_TOOLS_SWAP_CHUNKS("menu.tools.swap_chunks"),
 	MENU_TOOLS_EDIT_OVERLAYS("menu.tools.edit_overlays"),
 	MENU_TOOLS_NEXT_OVERLAY("menu.tools.next_overlay"),
@@ -158,6 +159,11 @@ public enum Translation {
 	DIALOG_CHANGE_NBT_CONFIRMATION_HEADER_SHORT("dialog.change_nbt_confirmation.header_short"),
 	DIALOG_CHANGE_NBT_TAB_QUERY("dialog.change_nbt.tab_query"),
 	DIALOG_CHANGE_NBT_TAB_SCRIPT("dialog.change_nbt.tab_script"),
+	DIALOG_RECOMPRESS_TITLE("dialog.recompress.title"),
+	DIALOG_RECOMPRESS_COMPRESSION("dialog.recompress.compression"),
+	DIALOG_RECOMPRESS_LEVEL("dialog.recompress.level"),
+	DIALOG_RECOMPRESS_LEVEL_DEFAULT("dialog.recompress.level.default"),
+	DIALOG_RECOMPRESS_SELECTION_ONLY("dialog.recompress.selection_only"),
 	DIALOG_EDIT_NBT_TITLE("dialog.edit_nbt.title"),
 	DIALOG_EDIT_NBT_PLACEHOLDER_LOADING("dialog.edit_nbt.placeholder.loading"),
 	DIALOG_EDIT_NBT_PLACEHOLDER_NO_CHUNK_DATA("dialog.edit_nbt.placeholder.no_chunk_data"),
@@ -191,6 +197,7 @@ public enum Translation {
 	DIALOG_PROGRESS_TITLE_EXPORTING_FILTERED_CHUNKS("dialog.progress.title.exporting_filtered_chunks"),
 	DIALOG_PROGRESS_TITLE_SELECTING_FILTERED_CHUNKS("dialog.progress.title.selecting_filtered_chunks"),
 	DIALOG_PROGRESS_TITLE_CHANGING_NBT_DATA("dialog.progress.title.changing_nbt_data"),
+	DIALOG_PROGRESS_TITLE_RECOMPRESSING_CHUNKS("dialog.progress.title.recompressing_chunks"),
 	DIALOG_PROGRESS_TITLE_SAVING_CHUNK("dialog.progress.title.saving_chunk"),
 	DIALOG_PROGRESS_TITLE_RUNNING_BEFORE("dialog.progress.title.running_before"),
 	DIALOG_PROGRESS_TITLE_RUNNING_AFTER("dialog.progress.title.running_after"),
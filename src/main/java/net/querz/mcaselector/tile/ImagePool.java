@@ -9,13 +9,14 @@ import net.querz.mcaselector.config.Config;
 import net.querz.mcaselector.config.ConfigProvider;
 import net.querz.mcaselector.io.FileHelper;
 import net.querz.mcaselector.io.ImageHelper;
+import net.querz.mcaselector.io.WorldIndex;
 import net.querz.mcaselector.io.db.CacheDBController;
 import net.querz.mcaselector.io.job.CachedImageLoadJob;
 import net.querz.mcaselector.io.job.RegionImageGenerator;
+import net.querz.mcaselector.metrics.Metrics;
 import net.querz.mcaselector.point.Point2i;
 import net.querz.mcaselector.text.Translation;
 import net.querz.mcaselector.ui.ProgressTask;
-import net.querz.mcaselector.ui.dialog.ErrorDialog;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import java.io.File;
@@ -24,11 +25,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.SQLException;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
+import java.util.Collection;
 
 public final class ImagePool {
 
@@ -72,6 +69,7 @@ public final class ImagePool {
 		if ((image = pool.get(zoomLevel).get(tile.location.asLong())) != null) {
 			tile.setImage(image);
 			tile.setLoaded(true);
+			Metrics.IMAGE_POOL.hit();
 			return;
 		}
 
@@ -90,6 +88,7 @@ public final class ImagePool {
 					tile.setImage(ImageHelper.scaleDownFXImage(image, Tile.SIZE / zl));
 					tile.setLoaded(true);
 					push(zoomLevel, tile.location, tile.image);
+					Metrics.IMAGE_POOL.hit();
 					return;
 				} else {
 					// image is lower res, but we set it anyway, so we can at least display something
@@ -104,6 +103,7 @@ public final class ImagePool {
 		// image in disk cache?
 		File diskCacheImageFile = FileHelper.createPNGFilePath(ConfigProvider.WORLD.getCacheDir(), zoomLevel, tile.location);
 		if (diskCacheImageFile.exists()) {
+			Metrics.IMAGE_POOL.hit();
 			CachedImageLoadJob.setLoading(tile, true);
 			CachedImageLoadJob.load(tile, diskCacheImageFile, zoomLevel, zoomLevel, img -> {
 				CachedImageLoadJob.setLoading(tile, false);
@@ -127,6 +127,7 @@ public final class ImagePool {
 				if (zl < zoomLevel) {
 					// image is larger than needed
 					// load and scale down
+					Metrics.IMAGE_POOL.hit();
 					CachedImageLoadJob.setLoading(tile, true);
 					CachedImageLoadJob.load(tile, diskCacheImageFile, zl, zoomLevel, img -> {
 						CachedImageLoadJob.setLoading(tile, false);
@@ -155,6 +156,7 @@ public final class ImagePool {
 			}
 		}
 
+		Metrics.IMAGE_POOL.miss();
 		RegionImageGenerator.setLoading(tile, true);
 		RegionImageGenerator.generate(tile, (img, uuid) -> {
 			tile.setImage(img);
@@ -240,40 +242,24 @@ public final class ImagePool {
 			task.setMessage(Translation.DIALOG_PROGRESS_SCANNING_FILES.toString());
 		}
 
-		// get all files that match the "r.<x>.<z>.mca" name
-		File[] files = ConfigProvider.WORLD.getWorldDirs().getRegion().listFiles();
-		if (files == null) {
-			return;
-		}
+		// get all files that match the "r.<x>.<z>.mca" name, sizes are provided by the index
+		Collection<WorldIndex.RegionFile> files = WorldIndex.listRegionFiles(ConfigProvider.WORLD.getWorldDirs().getRegion()).values();
 
 		if (task != null) {
-			task.setMax(files.length);
+			task.setMax(files.size());
 		}
 
-		ForkJoinPool threadPool = new ForkJoinPool(ConfigProvider.GLOBAL.getProcessThreads());
-		try {
-			List<Point2i> points = threadPool.submit(() -> Arrays.stream(files).parallel()
-					.filter(file -> file.length() > FileHelper.HEADER_SIZE) // only files that have more data than just the header
-					.map(file -> {
-						Point2i p = FileHelper.parseMCAFileName(file);
-						if (task != null && p != null) {
-							task.incrementProgress(String.format("%d, %d", p.getX(), p.getZ()));
-						}
-						return p;
-					})
-					.filter(Objects::nonNull)
-					.toList()).get();
-			points.forEach(p -> regions.add(p.asLong()));
-			LOGGER.debug("loaded all world files");
-		} catch (InterruptedException | ExecutionException e) {
-			LOGGER.warn("failed to load world", e);
+		for (WorldIndex.RegionFile file : files) {
+			// only files that have more data than just the header. files that were empty when the directory was
+			// scanned could have been written to since then, so their size is checked again.
+			if (file.length() > FileHelper.HEADER_SIZE || file.file().length() > FileHelper.HEADER_SIZE) {
+				regions.add(file.location().asLong());
+			}
 			if (task != null) {
-				task.done(null);
+				task.incrementProgress(String.format("%d, %d", file.location().getX(), file.location().getZ()));
 			}
-			new ErrorDialog(tileMap.getWindow().getPrimaryStage(), e);
-		} finally {
-			threadPool.shutdown();
 		}
+		LOGGER.debug("loaded all world files");
 	}
 
 	public void discardImage(Point2i region) {
@@ -10,6 +10,7 @@ import net.querz.mcaselector.config.ConfigProvider;
 import net.querz.mcaselector.io.FileHelper;
 import net.querz.mcaselector.io.mca.Chunk;
 import net.querz.mcaselector.io.mca.RegionMCAFile;
+import net.querz.mcaselector.jfr.TileImageEvent;
 import net.querz.mcaselector.math.MathUtil;
 import net.querz.mcaselector.point.Point2f;
 import net.querz.mcaselector.point.Point2i;
@@ -97,6 +98,8 @@ public final class TileImage {
 		int chunkSize = Tile.CHUNK_SIZE / scale;
 		int pixels = Tile.PIXELS / (scale * scale);
 
+		TileImageEvent event = new TileImageEvent();
+		event.begin();
 		try {
 
 			WritableImage finalImage = new WritableImage(size, size);
@@ -131,6 +134,8 @@ public final class TileImage {
 			return finalImage;
 		} catch (Exception ex) {
 			LOGGER.warn("failed to create image for MCAFile {}", mcaFile.getFile().getName(), ex);
+		} finally {
+			event.commit(mcaFile.getLocation(), scale);
 		}
 		return null;
 	}
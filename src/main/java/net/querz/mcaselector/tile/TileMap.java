@@ -266,7 +266,12 @@ public class TileMap extends Canvas implements ClipboardOwner {
 					}
 				}, new Point2f(), () -> scale, Integer.MAX_VALUE);
 
+				// queued jobs only pick up the new priorities when they are reprioritized
+				boolean prioritiesChanged = !newTilePriorities.equals(tilePriorities);
 				tilePriorities = newTilePriorities;
+				if (prioritiesChanged) {
+					JobHandler.reprioritizeJobs();
+				}
 
 				Platform.runLater(this::runUpdateListeners);
 
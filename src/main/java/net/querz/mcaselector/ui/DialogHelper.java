@@ -85,6 +85,21 @@ public class DialogHelper {
 		});
 	}
 
+	public static void recompressChunks(TileMap tileMap, Stage primaryStage) {
+		Optional<RecompressDialog.Result> result = new RecompressDialog(tileMap, primaryStage).showAndWait();
+		result.ifPresent(r -> {
+			LOGGER.debug("recompressing chunks with {} at level {}", r.compressionType(), r.compressionLevel());
+			new CancellableProgressDialog(Translation.DIALOG_PROGRESS_TITLE_RECOMPRESSING_CHUNKS, primaryStage)
+					.showProgressBar(t -> ChunkRecompressor.recompress(
+							r.compressionType(),
+							r.compressionLevel(),
+							r.selectionOnly() ? tileMap.getSelection() : null,
+							t,
+							false
+					));
+		});
+	}
+
 	public static void filterChunks(TileMap tileMap, Stage primaryStage) {
 		Optional<FilterChunksDialog.Result> result = new FilterChunksDialog(primaryStage).showAndWait();
 		result.ifPresent(r -> {
@@ -84,6 +84,7 @@ public class OptionBar extends BorderPane {
 	private final MenuItem filterChunks = UIFactory.menuItem(Translation.MENU_TOOLS_FILTER_CHUNKS);
 	private final MenuItem changeFields = UIFactory.menuItem(Translation.MENU_TOOLS_CHANGE_FIELDS);
 	private final MenuItem editNBT = UIFactory.menuItem(Translation.MENU_TOOLS_EDIT_NBT);
+	private final MenuItem recompressChunks = UIFactory.menuItem(Translation.MENU_TOOLS_RECOMPRESS_CHUNKS);
 	private final MenuItem swapChunks = UIFactory.menuItem(Translation.MENU_TOOLS_SWAP_CHUNKS);
 	private final MenuItem editOverlays = UIFactory.menuItem(Translation.MENU_TOOLS_EDIT_OVERLAYS);
 	private final MenuItem nextOverlay = UIFactory.menuItem(Translation.MENU_TOOLS_NEXT_OVERLAY);
@@ -123,7 +124,7 @@ public class OptionBar extends BorderPane {
 				exportImage, UIFactory.separator(),
 				clearSelectionCache);
 		tools.getItems().addAll(
-				importChunks, filterChunks, changeFields, editNBT, UIFactory.separator(),
+				importChunks, filterChunks, changeFields, editNBT, recompressChunks, UIFactory.separator(),
 				swapChunks, UIFactory.separator(),
 				editOverlays, nextOverlay, nextOverlayType, sumSelection);
 		about.setOnMouseClicked(e -> DialogHelper.showAboutDialog(primaryStage));
@@ -184,6 +185,7 @@ public class OptionBar extends BorderPane {
 		filterChunks.setOnAction(e -> DialogHelper.filterChunks(tileMap, primaryStage));
 		changeFields.setOnAction(e -> DialogHelper.changeFields(tileMap, primaryStage));
 		editNBT.setOnAction(e -> DialogHelper.editNBT(tileMap, primaryStage));
+		recompressChunks.setOnAction(e -> DialogHelper.recompressChunks(tileMap, primaryStage));
 		swapChunks.setOnAction(e -> DialogHelper.swapChunks(tileMap, primaryStage));
 		editOverlays.setOnAction(e -> DialogHelper.editOverlays(tileMap, primaryStage));
 		nextOverlay.setOnAction(e -> tileMap.nextOverlay());
@@ -284,6 +286,7 @@ public class OptionBar extends BorderPane {
 		saveScreenshot.setDisable(!enabled);
 		filterChunks.setDisable(!enabled);
 		changeFields.setDisable(!enabled);
+		recompressChunks.setDisable(!enabled);
 		importChunks.setDisable(!enabled);
 		invert.setDisable(!enabled);
 		invertRegions.setDisable(!enabled || tileMap.getSelectedChunks() == 0);
@@ -9,7 +9,6 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 import javafx.stage.Window;
-import net.querz.mcaselector.io.JobHandler;
 import net.querz.mcaselector.text.Translation;
 import net.querz.mcaselector.ui.ProgressTask;
 import net.querz.mcaselector.ui.UIFactory;
@@ -53,7 +52,6 @@ public class ProgressDialog extends Stage {
 	}
 
 	public void showProgressBar(Consumer<ProgressTask> r) {
-		JobHandler.setTrimSaveData(false);
 		currentTask = new ProgressTask() {
 			@Override
 			protected Void call() {
@@ -67,7 +65,6 @@ public class ProgressDialog extends Stage {
 		Thread thread = new Thread(currentTask);
 		thread.start();
 		showAndWait();
-		JobHandler.setTrimSaveData(true);
 	}
 
 	public void updateProgress(String status, double progress) {
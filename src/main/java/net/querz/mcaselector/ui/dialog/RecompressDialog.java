@@ -0,0 +1,83 @@
+package net.querz.mcaselector.ui.dialog;
+
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Dialog;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import javafx.util.StringConverter;
+import net.querz.mcaselector.io.mca.CompressionType;
+import net.querz.mcaselector.text.Translation;
+import net.querz.mcaselector.tile.TileMap;
+import net.querz.mcaselector.ui.UIFactory;
+import java.util.zip.Deflater;
+
+public class RecompressDialog extends Dialog<RecompressDialog.Result> {
+
+	private final ComboBox<CompressionType> compressionType = new ComboBox<>();
+	private final ComboBox<Integer> compressionLevel = new ComboBox<>();
+	private final CheckBox selectionOnly = UIFactory.checkbox(Translation.DIALOG_RECOMPRESS_SELECTION_ONLY);
+
+	public RecompressDialog(TileMap tileMap, Stage primaryStage) {
+		titleProperty().bind(Translation.DIALOG_RECOMPRESS_TITLE.getProperty());
+
+		initStyle(StageStyle.UTILITY);
+
+		getDialogPane().getStyleClass().add("recompress-dialog-pane");
+
+		setResultConverter(p -> p == ButtonType.OK ? new Result(
+				compressionType.getValue(),
+				compressionLevel.isDisabled() ? Deflater.DEFAULT_COMPRESSION : compressionLevel.getValue(),
+				selectionOnly.isSelected()) : null);
+
+		// apply same stylesheets to this dialog
+		getDialogPane().getStylesheets().addAll(primaryStage.getScene().getStylesheets());
+		getDialogPane().getStylesheets().add(RecompressDialog.class.getClassLoader().getResource("style/component/recompress-dialog.css").toExternalForm());
+
+		getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+		compressionType.getItems().addAll(CompressionType.GZIP, CompressionType.ZLIB, CompressionType.UNCOMPRESSED, CompressionType.LZ4);
+		compressionType.setValue(CompressionType.ZLIB);
+
+		compressionLevel.getItems().add(Deflater.DEFAULT_COMPRESSION);
+		for (int i = Deflater.NO_COMPRESSION; i <= Deflater.BEST_COMPRESSION; i++) {
+			compressionLevel.getItems().add(i);
+		}
+		compressionLevel.setValue(Deflater.DEFAULT_COMPRESSION);
+		compressionLevel.setConverter(new StringConverter<>() {
+
+			@Override
+			public String toString(Integer level) {
+				return level == null || level == Deflater.DEFAULT_COMPRESSION ? Translation.DIALOG_RECOMPRESS_LEVEL_DEFAULT.toString() : level.toString();
+			}
+
+			@Override
+			public Integer fromString(String string) {
+				return null;
+			}
+		});
+
+		// only gzip and zlib support a deflate level
+		compressionType.valueProperty().addListener((v, o, n) ->
+				compressionLevel.setDisable(n != CompressionType.GZIP && n != CompressionType.ZLIB));
+
+		selectionOnly.setSelected(tileMap.getSelectedChunks() > 0);
+		selectionOnly.setDisable(tileMap.getSelectedChunks() == 0);
+
+		GridPane grid = new GridPane();
+		grid.getStyleClass().add("recompress-grid-pane");
+		grid.add(UIFactory.label(Translation.DIALOG_RECOMPRESS_COMPRESSION), 0, 0);
+		grid.add(compressionType, 1, 0);
+		grid.add(UIFactory.label(Translation.DIALOG_RECOMPRESS_LEVEL), 0, 1);
+		grid.add(compressionLevel, 1, 1);
+
+		VBox content = new VBox(grid, selectionOnly);
+		content.getStyleClass().add("recompress-dialog-content");
+		getDialogPane().setContent(content);
+	}
+
+	public record Result(CompressionType compressionType, int compressionLevel, boolean selectionOnly) {}
+}
@@ -0,0 +1,233 @@
+package net.querz.mcaselector.filter;
+
+import net.querz.mcaselector.filter.filters.GroupFilter;
+import net.querz.mcaselector.io.mca.ChunkData;
+import org.junit.Test;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+import static org.junit.Assert.*;
+
+public class FilterCompilerTest {
+
+	private static final ChunkData DATA = new ChunkData(null, null, null, false);
+
+	// filter types ordered by the cost the compiler assigns to them
+	private static final FilterType[] TYPES = {
+		FilterType.X_POS,
+		FilterType.TIMESTAMP,
+		FilterType.DATA_VERSION,
+		FilterType.PALETTE,
+		FilterType.ENTITIES,
+		FilterType.SCRIPT
+	};
+
+	// the result of all throwing filters, null means they throw
+	private Boolean throwingResult;
+
+	@Test
+	public void testNegatedGroup() {
+		assertCompiled(negated(leaf(Operator.AND, true)));
+		assertCompiled(negated(leaf(Operator.AND, true), leaf(Operator.AND, false)));
+		assertCompiled(negated(leaf(Operator.AND, false), leaf(Operator.OR, true)));
+		assertCompiled(group(negated(negated(leaf(Operator.AND, false)))));
+		assertCompiled(group(leaf(Operator.AND, true), negated(Operator.AND, leaf(Operator.AND, false), leaf(Operator.OR, false))));
+	}
+
+	@Test
+	public void testEmptyGroup() {
+		assertCompiled(group());
+		assertCompiled(negated());
+		assertCompiled(group(group(), negated(Operator.AND)));
+		assertCompiled(group(leaf(Operator.AND, false), group(Operator.OR)));
+		assertCompiled(group(leaf(Operator.AND, true), negated(Operator.OR)));
+		assertCompiled(group(negated(Operator.AND), leaf(Operator.OR, true)));
+		assertCompiled(negated(group(), group(Operator.OR)));
+	}
+
+	@Test
+	public void testLeadingOr() {
+		assertCompiled(group(leaf(Operator.OR, false), leaf(Operator.AND, true)));
+		assertCompiled(group(leaf(Operator.OR, true), leaf(Operator.AND, false)));
+		assertCompiled(group(leaf(Operator.OR, true), leaf(Operator.OR, false)));
+		assertCompiled(group(group(Operator.OR, leaf(Operator.OR, false)), leaf(Operator.AND, true)));
+		assertCompiled(negated(Operator.OR, leaf(Operator.OR, false), leaf(Operator.AND, false)));
+	}
+
+	@Test
+	public void testExpensiveConditionFirst() {
+		assertCompiled(group(leaf(FilterType.SCRIPT, Operator.AND, true), leaf(FilterType.X_POS, Operator.AND, false)));
+		assertCompiled(group(leaf(FilterType.ENTITIES, Operator.AND, false), leaf(FilterType.TIMESTAMP, Operator.OR, true)));
+		assertCompiled(group(
+				leaf(FilterType.PALETTE, Operator.AND, true),
+				negated(Operator.AND, leaf(FilterType.X_POS, Operator.AND, true), leaf(FilterType.SCRIPT, Operator.OR, false)),
+				leaf(FilterType.DATA_VERSION, Operator.OR, false)));
+	}
+
+	@Test
+	public void testThrowingChild() {
+		// the child needs to be evaluated, so both throw
+		GroupFilter reached = group(leaf(Operator.AND, true), thrower(Operator.AND));
+		assertThrows(IllegalStateException.class, () -> reached.matches(DATA));
+		assertThrows(IllegalStateException.class, () -> FilterCompiler.compile(reached).test(DATA));
+
+		GroupFilter negated = negated(thrower(Operator.AND), leaf(Operator.OR, false));
+		assertThrows(IllegalStateException.class, () -> negated.matches(DATA));
+		assertThrows(IllegalStateException.class, () -> FilterCompiler.compile(negated).test(DATA));
+
+		// a previous condition decides the block, so neither evaluates the child
+		assertCompiled(group(leaf(Operator.AND, false), thrower(Operator.AND)));
+		assertCompiled(group(leaf(Operator.AND, true), thrower(Operator.OR)));
+
+		// the compiler evaluates the cheaper condition first, which decides the result without the child
+		GroupFilter cheaperAnd = group(thrower(Operator.AND), leaf(Operator.AND, false));
+		assertThrows(IllegalStateException.class, () -> cheaperAnd.matches(DATA));
+		assertFalse(FilterCompiler.compile(cheaperAnd).test(DATA));
+
+		GroupFilter cheaperOr = group(thrower(Operator.AND), leaf(Operator.OR, true));
+		assertThrows(IllegalStateException.class, () -> cheaperOr.matches(DATA));
+		assertTrue(FilterCompiler.compile(cheaperOr).test(DATA));
+	}
+
+	@Test
+	public void testRandomFilters() {
+		Random random = new Random(0);
+		for (int i = 0; i < 50000; i++) {
+			GroupFilter filter = randomGroup(random, Operator.AND, random.nextBoolean(), 3);
+			String message = filter.toString();
+
+			throwingResult = null;
+			boolean expected;
+			try {
+				expected = filter.matches(DATA);
+			} catch (IllegalStateException ex) {
+				assertCompiledSkipsThrowingFilters(filter, message);
+				continue;
+			}
+			// if matches() doesn't evaluate a throwing filter, the compiled filter doesn't either
+			assertEquals(message, expected, FilterCompiler.compile(filter).test(DATA));
+		}
+	}
+
+	// the compiled filter can only skip a throwing filter if its result doesn't depend on it
+	private void assertCompiledSkipsThrowingFilters(GroupFilter filter, String message) {
+		boolean compiled;
+		try {
+			compiled = FilterCompiler.compile(filter).test(DATA);
+		} catch (IllegalStateException ex) {
+			return;
+		}
+		throwingResult = true;
+		assertEquals(message, filter.matches(DATA), compiled);
+		throwingResult = false;
+		assertEquals(message, filter.matches(DATA), compiled);
+	}
+
+	private GroupFilter randomGroup(Random random, Operator operator, boolean negated, int depth) {
+		GroupFilter group = new GroupFilter(operator);
+		group.setNegated(negated);
+		int children = random.nextInt(5);
+		for (int i = 0; i < children; i++) {
+			Operator childOperator = random.nextBoolean() ? Operator.AND : Operator.OR;
+			if (depth > 0 && random.nextInt(3) == 0) {
+				group.addFilter(randomGroup(random, childOperator, random.nextBoolean(), depth - 1));
+			} else if (random.nextInt(10) == 0) {
+				group.addFilter(thrower(childOperator));
+			} else {
+				group.addFilter(leaf(TYPES[random.nextInt(TYPES.length)], childOperator, random.nextBoolean()));
+			}
+		}
+		return group;
+	}
+
+	private static void assertCompiled(GroupFilter filter) {
+		assertEquals(filter.toString(), filter.matches(DATA), FilterCompiler.compile(filter).test(DATA));
+	}
+
+	private static GroupFilter group(Filter<?>... children) {
+		return group(Operator.AND, children);
+	}
+
+	private static GroupFilter group(Operator operator, Filter<?>... children) {
+		GroupFilter group = new GroupFilter(operator);
+		for (Filter<?> child : children) {
+			group.addFilter(child);
+		}
+		return group;
+	}
+
+	private static GroupFilter negated(Filter<?>... children) {
+		return negated(Operator.AND, children);
+	}
+
+	private static GroupFilter negated(Operator operator, Filter<?>... children) {
+		GroupFilter group = group(operator, children);
+		group.setNegated(true);
+		return group;
+	}
+
+	private static TestFilter leaf(Operator operator, boolean result) {
+		return leaf(FilterType.X_POS, operator, result);
+	}
+
+	private static TestFilter leaf(FilterType type, Operator operator, boolean result) {
+		return new TestFilter(type, operator, String.valueOf(result), () -> result);
+	}
+
+	// the most expensive filter type, so the compiler never evaluates it before any other condition
+	private TestFilter thrower(Operator operator) {
+		return new TestFilter(FilterType.SCRIPT, operator, "throws", () -> {
+			if (throwingResult == null) {
+				throw new IllegalStateException("filter failed");
+			}
+			return throwingResult;
+		});
+	}
+
+	private static class TestFilter extends Filter<Boolean> {
+
+		private final String name;
+		private final BooleanSupplier result;
+
+		TestFilter(FilterType type, Operator operator, String name, BooleanSupplier result) {
+			super(type, operator);
+			this.name = name;
+			this.result = result;
+		}
+
+		@Override
+		public Boolean getFilterValue() {
+			return null;
+		}
+
+		@Override
+		public void setFilterValue(String raw) {}
+
+		@Override
+		public Comparator[] getComparators() {
+			return new Comparator[0];
+		}
+
+		@Override
+		public Comparator getComparator() {
+			return null;
+		}
+
+		@Override
+		public void setComparator(Comparator comparator) {}
+
+		@Override
+		public boolean matches(ChunkData data) {
+			return result.getAsBoolean();
+		}
+
+		@Override
+		public TestFilter clone() {
+			return new TestFilter(getType(), getOperator(), name, result);
+		}
+
+		@Override
+		public String toString() {
+			return getType() + "=" + name;
+		}
+	}
+}
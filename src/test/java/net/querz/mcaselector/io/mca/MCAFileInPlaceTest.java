@@ -0,0 +1,170 @@
+package net.querz.mcaselector.io.mca;
+
+import net.querz.mcaselector.point.Point2i;
+import net.querz.nbt.CompoundTag;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+public class MCAFileInPlaceTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private File file;
+
+	// index 0: 3 sectors at 2, index 1: 2 sectors at 5, index 2: 1 sector at 7
+	@Before
+	public void createFile() throws IOException {
+		file = new File(tmp.getRoot(), "r.0.0.mca");
+		RegionMCAFile mca = new RegionMCAFile(file);
+		mca.setChunk(0, chunk(0, 10000, 100));
+		mca.setChunk(1, chunk(1, 6000, 101));
+		mca.setChunk(2, chunk(2, 1000, 102));
+		assertTrue(mca.saveWithTempFile());
+		assertHeader(0, 2, 3);
+		assertHeader(1, 5, 2);
+		assertHeader(2, 7, 1);
+		assertEquals(8 * 4096, file.length());
+	}
+
+	@Test
+	public void testRewriteSmallerAndLarger() throws IOException {
+		RegionMCAFile mca = load();
+		mca.getChunk(0).setData(data(1000));
+		mca.getChunk(0).setTimestamp(200);
+		mca.getChunk(1).setData(data(12000));
+		mca.getChunk(1).setTimestamp(201);
+		mca.saveChanges();
+
+		// changed chunks are appended, because the old sectors are still referenced by the old header while writing
+		assertHeader(0, 8, 1);
+		assertHeader(1, 9, 3);
+		assertHeader(2, 7, 1);
+		assertEquals(12 * 4096, file.length());
+
+		RegionMCAFile reloaded = load();
+		assertEquals(data(1000), reloaded.getChunk(0).getData());
+		assertEquals(data(12000), reloaded.getChunk(1).getData());
+		assertEquals(data(1000, 102), reloaded.getChunk(2).getData());
+		assertChunkHeader(reloaded, 0, 200, 1);
+		assertChunkHeader(reloaded, 1, 201, 3);
+		assertChunkHeader(reloaded, 2, 102, 1);
+	}
+
+	@Test
+	public void testReusesFreedSectors() throws IOException {
+		RegionMCAFile mca = load();
+		mca.getChunk(0).setData(data(1000));
+		mca.getChunk(1).setData(data(1000));
+		mca.saveChanges();
+		assertHeader(0, 8, 1);
+		assertHeader(1, 9, 1);
+
+		// the sectors 2-6 were freed by the previous save
+		mca = load();
+		mca.getChunk(2).setData(data(15000));
+		mca.getChunk(2).setTimestamp(300);
+		mca.saveChanges();
+		assertHeader(2, 2, 4);
+		assertEquals(10 * 4096, file.length());
+
+		RegionMCAFile reloaded = load();
+		assertEquals(data(15000), reloaded.getChunk(2).getData());
+		assertChunkHeader(reloaded, 2, 300, 4);
+		assertEquals(data(1000), reloaded.getChunk(0).getData());
+		assertEquals(data(1000), reloaded.getChunk(1).getData());
+	}
+
+	@Test
+	public void testDeleteChunk() throws IOException {
+		RegionMCAFile mca = load();
+		mca.getChunk(1).setData(null);
+		mca.saveChanges();
+		assertHeader(1, 0, 0);
+		assertHeader(0, 2, 3);
+		assertHeader(2, 7, 1);
+
+		RegionMCAFile reloaded = load();
+		assertNull(reloaded.getChunk(1));
+		assertNull(reloaded.getChunkHeader(1));
+		assertEquals(data(10000, 100), reloaded.getChunk(0).getData());
+	}
+
+	@Test
+	public void testSaveSingleChunk() throws IOException {
+		new RegionMCAFile(file).saveSingleChunk(new Point2i(3, 0), chunk(3, 5000, 103));
+		assertHeader(3, 8, 2);
+		assertHeader(0, 2, 3);
+
+		RegionMCAFile reloaded = load();
+		assertEquals(data(5000, 103), reloaded.getChunk(3).getData());
+		assertChunkHeader(reloaded, 3, 103, 2);
+		assertEquals(data(6000, 101), reloaded.getChunk(1).getData());
+	}
+
+	@Test
+	public void testRejectsChunksWithMoreThan255Sectors() throws IOException {
+		byte[] before = Files.readAllBytes(file.toPath());
+
+		// too large for 255 sectors, but not large enough to be stored in an mcc file
+		RegionChunk large = chunk(3, 1_046_000, 103);
+		assertTrue(large.encode().size() > 255 * 4096);
+		assertTrue(large.encode().size() <= 1048576);
+
+		RegionMCAFile mca = new RegionMCAFile(file);
+		assertThrows(IOException.class, () -> mca.saveSingleChunk(new Point2i(3, 0), large));
+		assertArrayEquals(before, Files.readAllBytes(file.toPath()));
+	}
+
+	private RegionMCAFile load() throws IOException {
+		RegionMCAFile mca = new RegionMCAFile(file);
+		mca.load();
+		return mca;
+	}
+
+	private static RegionChunk chunk(int index, int size, int timestamp) {
+		RegionChunk chunk = new RegionChunk(new Point2i(index));
+		chunk.setData(data(size, timestamp));
+		chunk.setCompressionType(CompressionType.UNCOMPRESSED);
+		chunk.setTimestamp(timestamp);
+		return chunk;
+	}
+
+	private static CompoundTag data(int size) {
+		return data(size, size);
+	}
+
+	// random bytes, so the size on disk doesn't depend on the compression
+	private static CompoundTag data(int size, long seed) {
+		byte[] bytes = new byte[size];
+		new Random(seed).nextBytes(bytes);
+		CompoundTag data = new CompoundTag();
+		data.putInt("DataVersion", 3700);
+		data.putByteArray("Data", bytes);
+		return data;
+	}
+
+	private void assertHeader(int index, int offset, int sectors) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			raf.seek(index * 4L);
+			int entry = raf.readInt();
+			assertEquals("offset of chunk " + index, offset, entry >>> 8);
+			assertEquals("sectors of chunk " + index, sectors, entry & 0xFF);
+		}
+	}
+
+	private static void assertChunkHeader(MCAFile<?> mca, int index, int timestamp, int sectors) {
+		ChunkHeader header = mca.getChunkHeader(index);
+		assertNotNull(header);
+		assertEquals(timestamp, header.timestamp());
+		assertEquals(sectors, header.sectors());
+	}
+}
@@ -0,0 +1,81 @@
+package net.querz.mcaselector.io.mca;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SectorAllocatorTest {
+
+	private static SectorAllocator allocator(long fileSectors, int... chunks) {
+		// chunks are pairs of offset and number of sectors
+		int[] offsets = new int[1024];
+		byte[] sectors = new byte[1024];
+		for (int i = 0; i < chunks.length / 2; i++) {
+			offsets[i] = chunks[i * 2];
+			sectors[i] = (byte) chunks[i * 2 + 1];
+		}
+		return new SectorAllocator(offsets, sectors, fileSectors * 4096);
+	}
+
+	@Test
+	public void testHeaderIsNeverAllocated() {
+		SectorAllocator allocator = allocator(2);
+		assertEquals(2, allocator.allocate(1));
+		assertEquals(3, allocator.allocate(255));
+	}
+
+	@Test
+	public void testFirstFit() {
+		// used: 2, 5-6, 10. free: 3-4, 7-9
+		SectorAllocator allocator = allocator(11, 2, 1, 5, 2, 10, 1);
+		assertEquals(3, allocator.allocate(1));
+		// the remaining sector of the first gap is too small
+		assertEquals(7, allocator.allocate(2));
+		assertEquals(4, allocator.allocate(1));
+		assertEquals(9, allocator.allocate(1));
+		assertEquals(11, allocator.allocate(1));
+	}
+
+	@Test
+	public void testSkipsGapsThatAreTooSmall() {
+		SectorAllocator allocator = allocator(11, 2, 1, 5, 2, 10, 1);
+		assertEquals(7, allocator.allocate(3));
+		assertEquals(3, allocator.allocate(2));
+		assertEquals(11, allocator.allocate(1));
+	}
+
+	@Test
+	public void testGrowsAtTheEndOfTheFile() {
+		SectorAllocator allocator = allocator(4, 2, 2);
+		assertEquals(4, allocator.allocate(3));
+		assertEquals(7, allocator.allocate(1));
+		assertEquals(8, allocator.allocate(255));
+		assertEquals(263, allocator.allocate(1));
+	}
+
+	@Test
+	public void testExtendsFreeSpaceAtTheEndOfTheFile() {
+		// the file is 5 sectors long, but only sector 2 is used
+		SectorAllocator allocator = allocator(5, 2, 1);
+		assertEquals(3, allocator.allocate(4));
+		assertEquals(7, allocator.allocate(1));
+	}
+
+	@Test
+	public void testUnpaddedFileEnd() {
+		// the last chunk's sector is only partially written, the file length is rounded up
+		int[] offsets = new int[1024];
+		byte[] sectors = new byte[1024];
+		offsets[0] = 2;
+		sectors[0] = 1;
+		SectorAllocator allocator = new SectorAllocator(offsets, sectors, 2 * 4096 + 100);
+		assertEquals(3, allocator.allocate(1));
+	}
+
+	@Test
+	public void testIgnoresEmptyHeaderEntries() {
+		// offset without sectors and sectors without offset don't occupy anything
+		SectorAllocator allocator = allocator(4, 2, 0, 0, 3);
+		assertEquals(2, allocator.allocate(2));
+		assertEquals(4, allocator.allocate(1));
+	}
+}